@@ -1,10 +1,15 @@
 package org.openmrs.maven.plugins;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.ListContainersCmd;
 import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientBuilder;
 import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.core.command.LogContainerResultCallback;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -13,7 +18,9 @@ import org.codehaus.plexus.components.interactivity.Prompter;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 abstract class AbstractDockerMojo extends AbstractMojo {
 
@@ -25,6 +32,8 @@ abstract class AbstractDockerMojo extends AbstractMojo {
     protected static final String API_VERSION = "1.18";
     protected static final String DEFAULT_HOST_LINUX = "unix:///var/run/docker.sock";
 
+    private static final long LOGS_TIMEOUT_SECONDS = 5;
+
     private static final String NOT_LINUX_UNABLE_TO_CONNECT_MESSAGE = "\n\n\nCould not connect to Docker at " +
             "%s\n\n Please make sure Docker is running.\n\n If you are using 'Docker Toolbox', " +
             "please make sure you run the SDK command\n from the 'Docker  Toolbox' terminal.\n\n" +
@@ -85,34 +94,86 @@ abstract class AbstractDockerMojo extends AbstractMojo {
     }
 
     protected Container findContainer(String id){
-        List<Container> containers = docker.listContainersCmd().withShowAll(true).exec();
+        return findContainer(id, null);
+    }
 
-        for (Container container : containers) {
-            if (container.getId().equals(id)) {
-                return container;
-            }
+    /**
+     * Finds container by id, name or label. Containers created by the SDK are labelled with their name,
+     * so they are looked up with a server-side label filter and other containers on the host are not listed.
+     * Unlabelled containers, e.g. created by hand or by older versions of the SDK, are found in the list of all containers.
+     *
+     * @param cachedId id to which the container was resolved before, preferred over other matches
+     */
+    protected Container findContainer(String id, String cachedId){
+        Container container = findMatching(listContainers().withLabelFilter(id).exec(), id, cachedId);
+        if (container == null) {
+            container = findMatching(listContainers().exec(), id, cachedId);
         }
+        return container;
+    }
+
+    private ListContainersCmd listContainers() {
+        return docker.listContainersCmd().withShowAll(true);
+    }
 
-        for (Container container: containers) {
-            if (Arrays.asList(container.getNames()).contains(id)) {
+    private Container findMatching(List<Container> containers, String id, String cachedId) {
+        if (StringUtils.isNotBlank(cachedId)) {
+            for (Container container : containers) {
+                if (container.getId().equals(cachedId) && matches(container, id)) {
+                    return container;
+                }
+            }
+        }
+        for (Container container : containers) {
+            if (matches(container, id)) {
                 return container;
             }
         }
+        return null;
+    }
 
+    private boolean matches(Container container, String id) {
+        if (container.getId().equals(id)) {
+            return true;
+        }
         //on Linux name is prepended with '/'
-        String idWithSlash = "/" + id;
-        for (Container container: containers) {
-            if (Arrays.asList(container.getNames()).contains(idWithSlash)) {
-                return container;
-            }
+        List<String> names = container.getNames() != null ? Arrays.asList(container.getNames()) : Collections.<String>emptyList();
+        if (names.contains(id) || names.contains("/" + id)) {
+            return true;
         }
+        return container.getLabels() != null && container.getLabels().containsKey(id);
+    }
 
-        for (Container container: containers) {
-            if (container.getLabels().containsKey(id)) {
-                return container;
-            }
+    protected boolean isContainerRunning(String containerId) {
+        InspectContainerResponse.ContainerState state = docker.inspectContainerCmd(containerId).exec().getState();
+        return Boolean.TRUE.equals(state.getRunning());
+    }
+
+    /**
+     * @param since seconds since epoch from which logs are searched
+     * @return true if stdout or stderr of the container contains text, false if it does not or logs are unavailable
+     */
+    protected boolean logsContain(String containerId, int since, String text) {
+        final StringBuilder logs = new StringBuilder();
+        try {
+            docker.logContainerCmd(containerId)
+                    .withStdOut(true)
+                    .withStdErr(true)
+                    .withSince(since)
+                    .exec(new LogContainerResultCallback() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            logs.append(new String(frame.getPayload()));
+                        }
+                    })
+                    .awaitCompletion(LOGS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            return false;
         }
-        return null;
+        return logs.indexOf(text) != -1;
     }
 
     protected void showMessage(String message) {
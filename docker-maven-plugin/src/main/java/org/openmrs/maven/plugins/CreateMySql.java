@@ -1,24 +1,41 @@
 package org.openmrs.maven.plugins;
 
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.CreateVolumeCmd;
+import com.github.dockerjava.api.command.PullImageCmd;
+import com.github.dockerjava.api.exception.DockerClientException;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Container;
 import com.github.dockerjava.api.model.ExposedPort;
 import com.github.dockerjava.api.model.Image;
 import com.github.dockerjava.api.model.Ports;
 import com.github.dockerjava.api.model.PullResponseItem;
+import com.github.dockerjava.api.model.ResponseItem;
 import com.github.dockerjava.api.model.Volume;
+import com.github.dockerjava.core.command.PullImageResultCallback;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import javax.ws.rs.ProcessingException;
-import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @goal create-mysql
@@ -26,6 +43,54 @@ import java.util.concurrent.CountDownLatch;
  */
 public class CreateMySql extends AbstractDockerMojo {
 
+    static final String PROFILE_DEFAULT = "default";
+    static final String PROFILE_DEV_FAST = "dev-fast";
+    static final String PROFILE_PROD_LIKE = "prod-like";
+
+    private static final String PROFILE_LABEL = "org.openmrs.sdk.profile";
+    private static final String IMAGE_LABEL = "org.openmrs.sdk.image";
+    private static final String SNAPSHOT_LABEL = "org.openmrs.sdk.snapshot";
+    private static final String TMPFS_LABEL = "org.openmrs.sdk.tmpfs";
+
+    static final String SNAPSHOT_REPOSITORY = "openmrs-sdk-mysql-snapshot";
+    static final String SNAPSHOT_DB_NAME = "openmrs";
+    /**
+     * data directory outside of the volume declared by MySQL images, so that it is committed to the snapshot image
+     */
+    private static final String SNAPSHOT_DATA_DIR = "/var/lib/mysql-snapshot";
+    private static final String INIT_SCRIPTS_DIR = "/docker-entrypoint-initdb.d";
+    private static final String INIT_DONE = "init process done";
+    private static final long SNAPSHOT_POLL_MILLIS = 2000;
+
+    /**
+     * mysqld arguments of profiles, supported by MySQL 5.6+ and MariaDB 10+ images
+     */
+    static final Map<String, List<String>> PROFILES = new LinkedHashMap<>();
+
+    static {
+        PROFILES.put(PROFILE_DEFAULT, Collections.<String>emptyList());
+        //relaxed durability, data may be lost if the host crashes, which is fine for development
+        PROFILES.put(PROFILE_DEV_FAST, Arrays.asList(
+                "--character-set-server=utf8",
+                "--collation-server=utf8_general_ci",
+                "--innodb_buffer_pool_size=512M",
+                "--innodb_log_file_size=256M",
+                "--innodb_flush_log_at_trx_commit=2",
+                "--innodb_doublewrite=0",
+                "--sync_binlog=0",
+                "--performance_schema=0",
+                "--max_allowed_packet=256M"));
+        PROFILES.put(PROFILE_PROD_LIKE, Arrays.asList(
+                "--character-set-server=utf8",
+                "--collation-server=utf8_general_ci",
+                "--innodb_buffer_pool_size=1G",
+                "--innodb_log_file_size=256M",
+                "--innodb_flush_log_at_trx_commit=1",
+                "--innodb_doublewrite=1",
+                "--sync_binlog=1",
+                "--max_allowed_packet=64M"));
+    }
+
     /**
      * port exposed by mysql container to connect with db
      *
@@ -47,32 +112,261 @@ public class CreateMySql extends AbstractDockerMojo {
      */
     protected String rootPassword;
 
+    /**
+     * MySQL or MariaDB image with tag, e.g. mysql:5.7 or mariadb:10.1
+     *
+     * @parameter expression="${image}" default-value="mysql:5.6"
+     */
+    protected String image;
+
+    /**
+     * settings of mysqld: default, dev-fast or prod-like
+     *
+     * @parameter expression="${profile}" default-value="default"
+     */
+    protected String profile;
+
+    /**
+     * SQL script imported into a cached snapshot image, from which the container is created instead of an empty DB
+     *
+     * @parameter expression="${snapshotScript}"
+     */
+    protected File snapshotScript;
+
+    /**
+     * seconds to wait until the snapshot script is imported
+     *
+     * @parameter expression="${snapshotTimeout}" default-value="1800"
+     */
+    protected int snapshotTimeout;
+
+    /**
+     * keep data directory on tmpfs, so that DB does not write to disk, data is lost when the container stops
+     *
+     * @parameter expression="${tmpfs}" default-value="false"
+     */
+    protected boolean tmpfs;
+
+    /**
+     * size limit of tmpfs data directory
+     *
+     * @parameter expression="${tmpfsSize}" default-value="2g"
+     */
+    protected String tmpfsSize;
+
+    /**
+     * seconds to wait until the image is pulled
+     *
+     * @parameter expression="${pullTimeout}" default-value="900"
+     */
+    protected int pullTimeout;
+
+    /**
+     * registry mirror from which images are pulled before Docker Hub, e.g. localhost:5000
+     *
+     * @parameter expression="${registryMirror}"
+     */
+    protected String registryMirror;
+
     @Override
     public void executeTask() throws MojoExecutionException, MojoFailureException {
 
         if (StringUtils.isBlank(port)) port = DEFAULT_MYSQL_EXPOSED_PORT;
+        if (StringUtils.isBlank(container)) container = DEFAULT_MYSQL_CONTAINER;
+        if (StringUtils.isBlank(image)) image = MYSQL_5_6;
+        if (StringUtils.isBlank(profile)) profile = PROFILE_DEFAULT;
         //root password may be blank but not null, if user wants to have empty password
         if (rootPassword == null) rootPassword = DEFAULT_MYSQL_PASSWORD;
 
+        if (!PROFILES.containsKey(profile)) {
+            throw new MojoExecutionException("Unknown DB profile '" + profile + "', supported profiles are: "
+                    + StringUtils.join(PROFILES.keySet(), ", "));
+        }
+
+        if (tmpfs && snapshotScript != null) {
+            throw new MojoExecutionException("A container created from a DB snapshot cannot use tmpfs");
+        }
+
+        Container existing = findContainer(container);
+        if (existing != null) {
+            checkContainerSettings(existing);
+            return;
+        }
+
         if (noMySqlImage(docker)) {
             pullMySqlImage(docker);
         }
 
-        if (findContainer(DEFAULT_MYSQL_CONTAINER) == null) {
+        if (snapshotScript != null) {
+            createContainerFromSnapshot(getOrBuildSnapshot());
+        } else {
             createMysqlContainer(docker);
         }
+    }
+
+    /**
+     * Snapshot images are tagged with a hash of the base image and the script, so each DB dump is imported once
+     *
+     * @return name of the snapshot image
+     */
+    private String getOrBuildSnapshot() throws MojoExecutionException {
+        String tag = getSnapshotTag();
+        String snapshot = SNAPSHOT_REPOSITORY + ":" + tag;
+        if (!docker.listImagesCmd().withImageNameFilter(snapshot).exec().isEmpty()) {
+            showMessage("Using cached DB snapshot " + snapshot);
+            return snapshot;
+        }
+
+        showMessage("Importing " + snapshotScript.getName() + " into DB snapshot " + snapshot + ", it is done once for this dump...");
+        long start = System.currentTimeMillis();
+        List<String> args = new ArrayList<>(PROFILES.get(profile));
+        args.add("--datadir=" + SNAPSHOT_DATA_DIR);
+        String builder = docker.createContainerCmd(image)
+                .withCmd(args.toArray(new String[args.size()]))
+                .withEnv("MYSQL_ROOT_PASSWORD=" + rootPassword, "MYSQL_DATABASE=" + SNAPSHOT_DB_NAME)
+                .exec().getId();
+        try {
+            docker.copyArchiveToContainerCmd(builder)
+                    .withHostResource(snapshotScript.getAbsolutePath())
+                    .withRemotePath(INIT_SCRIPTS_DIR)
+                    .exec();
+            int startedAt = (int) (System.currentTimeMillis() / 1000) - 1;
+            docker.startContainerCmd(builder).exec();
+            waitForImport(builder, startedAt);
+            //stopping shuts down mysqld cleanly, so that the data directory is consistent
+            docker.stopContainerCmd(builder).withTimeout(60).exec();
+            docker.commitCmd(builder)
+                    .withRepository(SNAPSHOT_REPOSITORY)
+                    .withTag(tag)
+                    .exec();
+        } finally {
+            docker.removeContainerCmd(builder).withForce(true).withRemoveVolumes(true).exec();
+        }
+        showMessage(String.format("DB snapshot created in %.1fs.", (System.currentTimeMillis() - start) / 1000.0));
+        return snapshot;
+    }
+
+    private void waitForImport(String containerId, int startedAt) throws MojoExecutionException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(snapshotTimeout);
+        while (!logsContain(containerId, startedAt, INIT_DONE)) {
+            if (!isContainerRunning(containerId)) {
+                throw new MojoExecutionException("Failed to import " + snapshotScript + " into DB snapshot, " +
+                        "MySQL stopped. Check the script and try again.");
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new MojoExecutionException("Failed to import " + snapshotScript + " into DB snapshot in "
+                        + snapshotTimeout + "s. Use -DsnapshotTimeout to wait longer.");
+            }
+            try {
+                Thread.sleep(SNAPSHOT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while importing DB snapshot", e);
+            }
+        }
+    }
+
+    /**
+     * The data directory depends on the image, the dump, the profile used to import it and the root password
+     * stored in it, so a snapshot is reused only if all of them are the same
+     */
+    private String getSnapshotTag() throws MojoExecutionException {
+        try (InputStream in = new FileInputStream(snapshotScript)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String value : Arrays.asList(image, profile, StringUtils.join(PROFILES.get(profile), " "), rootPassword)) {
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder tag = new StringBuilder();
+            for (byte b : digest.digest()) {
+                tag.append(String.format("%02x", b));
+            }
+            return tag.substring(0, 12);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new MojoExecutionException("Failed to read " + snapshotScript, e);
+        }
+    }
+
+    /**
+     * Data of the container is a copy-on-write layer on top of the snapshot image, so creating it takes seconds
+     */
+    private void createContainerFromSnapshot(String snapshot) {
+        ExposedPort tcp3306 = ExposedPort.tcp(3306);
+        Ports portBindings = new Ports();
+        portBindings.bind(tcp3306, new Ports.Binding("localhost", port));
+
+        Map<String, String> labels = new HashMap<>();
+        labels.put(container, "true");
+        labels.put(PROFILE_LABEL, profile);
+        labels.put(IMAGE_LABEL, image);
+        labels.put(SNAPSHOT_LABEL, snapshot);
+
+        List<String> args = new ArrayList<>(PROFILES.get(profile));
+        args.add("--datadir=" + SNAPSHOT_DATA_DIR);
 
+        docker.createContainerCmd(snapshot)
+                .withCmd(args.toArray(new String[args.size()]))
+                .withExposedPorts(tcp3306)
+                .withPortBindings(portBindings)
+                .withName(container)
+                .withEnv("MYSQL_ROOT_PASSWORD=" + rootPassword)
+                .withLabels(labels)
+                .exec();
     }
 
+    /**
+     * Settings of an existing container cannot be changed, so it must have been created with the requested ones.
+     * Containers created before profiles were introduced have no labels and use stock mysql:5.6.
+     */
+    private void checkContainerSettings(Container existing) throws MojoExecutionException {
+        Map<String, String> labels = existing.getLabels() != null ? existing.getLabels() : Collections.<String, String>emptyMap();
+        String existingProfile = labels.containsKey(PROFILE_LABEL) ? labels.get(PROFILE_LABEL) : PROFILE_DEFAULT;
+        String existingImage = labels.containsKey(IMAGE_LABEL) ? labels.get(IMAGE_LABEL) : MYSQL_5_6;
+        if (tmpfs != labels.containsKey(TMPFS_LABEL)) {
+            throw new MojoExecutionException("The '" + container + "' container already exists and " +
+                    (tmpfs ? "does not keep" : "keeps") + " data on tmpfs. Use a different container.");
+        }
+        if (!existingProfile.equals(profile) || !existingImage.equals(image)) {
+            throw new MojoExecutionException(String.format("The '%s' container already exists with %s image and %s profile, " +
+                    "which differ from requested %s image and %s profile. Use the same settings or a different container.",
+                    container, existingImage, existingProfile, image, profile));
+        }
+    }
+
+    /**
+     * @return false if the image is present, including images pinned with a digest, e.g. mysql@sha256:...
+     */
     private boolean noMySqlImage(DockerClient docker) {
-        List<Image> mysql = docker.listImagesCmd().withImageNameFilter(MYSQL_5_6).exec();
+        if (image.contains("@")) {
+            //images are listed by tags only, a digest is resolved by inspecting the image
+            try {
+                docker.inspectImageCmd(image).exec();
+                return false;
+            } catch (NotFoundException e) {
+                return true;
+            }
+        }
+        List<Image> mysql = docker.listImagesCmd().withImageNameFilter(image).exec();
         return mysql.size() == 0;
     }
 
     private void createMysqlContainer(DockerClient docker) {
-        if (container == null) container = DEFAULT_MYSQL_CONTAINER;
-
-        docker.createVolumeCmd().withName(container + "-data").exec();
+        CreateVolumeCmd createVolume = docker.createVolumeCmd().withName(container + "-data");
+        if (tmpfs) {
+            //tmpfs is mounted when the container starts and discarded when it stops
+            Map<String, String> options = new HashMap<>();
+            options.put("type", "tmpfs");
+            options.put("device", "tmpfs");
+            options.put("o", "size=" + tmpfsSize);
+            createVolume.withDriver("local").withDriverOpts(options);
+            showMessage("DB data of the '" + container + "' container is kept on tmpfs and lost when the container stops.");
+        }
+        createVolume.exec();
 
         ExposedPort tcp3306 = ExposedPort.tcp(3306);
         Ports portBindings = new Ports();
@@ -80,10 +374,21 @@ public class CreateMySql extends AbstractDockerMojo {
 
         Map<String, String> labels = new HashMap<>();
         labels.put(container, "true");
+        labels.put(PROFILE_LABEL, profile);
+        labels.put(IMAGE_LABEL, image);
+        if (tmpfs) {
+            labels.put(TMPFS_LABEL, tmpfsSize);
+        }
 
         Volume volume = new Volume(container + "-data:/var/lib/mysql");
 
-        docker.createContainerCmd(MYSQL_5_6)
+        List<String> mysqldArgs = PROFILES.get(profile);
+        if (!mysqldArgs.isEmpty()) {
+            showMessage("Using '" + profile + "' profile: " + StringUtils.join(mysqldArgs, " "));
+        }
+
+        docker.createContainerCmd(image)
+                .withCmd(mysqldArgs.toArray(new String[mysqldArgs.size()]))
                 .withExposedPorts(tcp3306)
                 .withPortBindings(portBindings)
                 .withName(container)
@@ -94,41 +399,152 @@ public class CreateMySql extends AbstractDockerMojo {
                 .exec();
     }
 
-    private void pullMySqlImage(DockerClient docker) {
-        final CountDownLatch latch = new CountDownLatch(1);
-        docker.pullImageCmd("mysql")
-                .withTag("5.6")
-                .exec(new ResultCallback<PullResponseItem>() {
-                    @Override
-                    public void onStart(Closeable closeable) {
-                        showMessage("Started downloading mysql:5.6 image ...");
-                    }
+    /**
+     * Pulls the image from the registry mirror if configured, falling back to Docker Hub.
+     * Images without a tag are pulled as 'latest', never with all tags of the repository.
+     */
+    private void pullMySqlImage(DockerClient docker) throws MojoExecutionException {
+        String repository;
+        String reference;
+        int digestIndex = image.indexOf('@');
+        int tagIndex = image.lastIndexOf(':');
+        if (digestIndex >= 0) {
+            repository = image.substring(0, digestIndex);
+            reference = image.substring(digestIndex + 1);
+        } else if (tagIndex > image.lastIndexOf('/')) {
+            repository = image.substring(0, tagIndex);
+            reference = image.substring(tagIndex + 1);
+        } else {
+            repository = image;
+            reference = "latest";
+        }
+        boolean pinnedByDigest = digestIndex >= 0;
 
-                    @Override
-                    public void onNext(PullResponseItem object) {
+        if (StringUtils.isNotBlank(registryMirror) && pinnedByDigest) {
+            //a digest cannot be given to a copy with a tag, so the image would not be found by its name
+            showMessage("Pulling " + image + " from Docker Hub, since images pinned by digest cannot be pulled from a mirror");
+        } else if (StringUtils.isNotBlank(registryMirror)) {
+            String mirrorRepository = StringUtils.removeEnd(registryMirror, "/") + "/"
+                    + (repository.contains("/") ? repository : "library/" + repository);
+            try {
+                pullImage(docker, mirrorRepository, reference);
+                docker.tagImageCmd(mirrorRepository + ":" + reference, repository, reference).exec();
+                return;
+            } catch (MojoExecutionException | RuntimeException e) {
+                showMessage("Failed to pull " + image + " from " + registryMirror + " (" + e.getMessage() + "), pulling from Docker Hub...");
+            }
+        }
+        pullImage(docker, repository, reference);
+    }
 
-                    }
+    /**
+     * @param reference tag or digest, e.g. sha256:...
+     */
+    private void pullImage(DockerClient docker, String repository, String reference) throws MojoExecutionException {
+        final String name = repository + (reference.contains(":") ? "@" : ":") + reference;
+        showMessage("Started downloading " + name + " image ...");
+        final PullProgress progress = new PullProgress(name);
+        PullImageResultCallback callback = new PullImageResultCallback() {
+            @Override
+            public void onNext(PullResponseItem item) {
+                super.onNext(item);
+                if (item.getErrorDetail() != null || item.getError() != null) {
+                    //fail fast instead of waiting for the stream to end
+                    onError(new DockerClientException(item.getError()));
+                    return;
+                }
+                progress.update(item);
+            }
+        };
+        PullImageCmd pull = docker.pullImageCmd(repository).withTag(reference);
+        pull.exec(callback);
+        try {
+            if (!callback.awaitCompletion(pullTimeout, TimeUnit.SECONDS)) {
+                throw new MojoExecutionException("Failed to pull " + name + " in " + pullTimeout + "s. Use -DpullTimeout to wait longer.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while pulling " + name, e);
+        } catch (RuntimeException e) {
+            throw new MojoExecutionException("Failed to pull " + name + ": " + e.getMessage(), e);
+        } finally {
+            try {
+                callback.close();
+            } catch (IOException e) {
+                //ignore
+            }
+        }
+        showMessage(progress.summary());
+    }
 
-                    @Override
-                    public void onError(Throwable throwable) {
+    /**
+     * Tracks bytes of layers being downloaded and shows progress at most once a second
+     */
+    private static class PullProgress {
 
-                    }
+        private static final long REPORT_INTERVAL_MILLIS = 1000;
 
-                    @Override
-                    public void onComplete() {
-                        showMessage("Finished!");
-                        latch.countDown();
-                    }
+        private final String image;
+        private final long start = System.currentTimeMillis();
+        private final Map<String, Long> downloaded = new HashMap<>();
+        private final Map<String, Long> sizes = new HashMap<>();
+        private final Set<String> completed = new HashSet<>();
+        private final Set<String> reused = new HashSet<>();
+        private long lastReport = start;
 
-                    @Override
-                    public void close() throws IOException {
+        PullProgress(String image) {
+            this.image = image;
+        }
 
-                    }
-                });
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
-            throw new RuntimeException("Failed to create mysql container", e);
+        synchronized void update(PullResponseItem item) {
+            String layer = item.getId();
+            String status = item.getStatus();
+            if (layer == null || status == null) {
+                return;
+            }
+            if (status.startsWith("Already exists")) {
+                reused.add(layer);
+            } else if (status.startsWith("Pull complete") || status.startsWith("Download complete")) {
+                completed.add(layer);
+                if (sizes.containsKey(layer)) {
+                    downloaded.put(layer, sizes.get(layer));
+                }
+            } else if (status.startsWith("Downloading") && item.getProgressDetail() != null) {
+                ResponseItem.ProgressDetail detail = item.getProgressDetail();
+                if (detail.getCurrent() != null) {
+                    downloaded.put(layer, detail.getCurrent());
+                }
+                if (detail.getTotal() != null && detail.getTotal() > 0) {
+                    sizes.put(layer, detail.getTotal());
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= REPORT_INTERVAL_MILLIS) {
+                lastReport = now;
+                System.out.println(String.format("%s: %d of %d layers done, %s of %s, %s/s",
+                        image, completed.size(), sizes.size(), megabytes(sum(downloaded)), megabytes(sum(sizes)),
+                        megabytes(sum(downloaded) * 1000 / Math.max(1, now - start))));
+            }
+        }
+
+        synchronized String summary() {
+            long millis = System.currentTimeMillis() - start;
+            return String.format("Finished downloading %s in %.1fs: %s at %s/s, %d layers reused from cache",
+                    image, millis / 1000.0, megabytes(sum(downloaded)), megabytes(sum(downloaded) * 1000 / Math.max(1, millis)),
+                    reused.size());
+        }
+
+        private static long sum(Map<String, Long> values) {
+            long sum = 0;
+            for (Long value : values.values()) {
+                sum += value;
+            }
+            return sum;
+        }
+
+        private static String megabytes(long bytes) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
         }
     }
 }
@@ -5,7 +5,15 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @goal run-db
@@ -14,6 +22,11 @@ import java.sql.DriverManager;
 public class RunDb extends AbstractDockerMojo {
 
     public static final String JDBC_MYSQL = "jdbc:mysql://";
+
+    private static final String READY_FOR_CONNECTIONS = "ready for connections";
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
     /**
      * port exposed by mysql container to connect with db
      *
@@ -21,6 +34,20 @@ public class RunDb extends AbstractDockerMojo {
      */
     protected String container;
 
+    /**
+     * id to which the container was resolved before, checked first to avoid looking up the container
+     *
+     * @parameter expression="${cachedContainerId}"
+     */
+    protected String cachedContainerId;
+
+    /**
+     * file to which the resolved container id is written, so that callers can cache it
+     *
+     * @parameter expression="${containerIdFile}"
+     */
+    protected File containerIdFile;
+
     /**
      * uri to connect with db
      *
@@ -42,19 +69,43 @@ public class RunDb extends AbstractDockerMojo {
      */
     protected String password;
 
+    /**
+     * seconds to wait until the DB is ready for connections
+     *
+     * @parameter expression="${dbReadyTimeout}" default-value="60"
+     */
+    protected int dbReadyTimeout;
+
+    /**
+     * seconds to wait for a single connection attempt
+     *
+     * @parameter expression="${dbConnectTimeout}" default-value="5"
+     */
+    protected int dbConnectTimeout;
+
     @Override
     public void executeTask() throws MojoExecutionException, MojoFailureException {
         Container dbContainer = null;
 
         if (StringUtils.isNotBlank(container)) {
-            dbContainer = findContainer(container);
+            dbContainer = findContainer(container, cachedContainerId);
         }
 
         if (dbContainer == null) {
             throw new MojoExecutionException("Failed to find the '" + container + "' container. Run `docker ps` to see available containers.");
         }
 
+        if (containerIdFile != null) {
+            try {
+                Files.write(containerIdFile.toPath(), dbContainer.getId().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to write the container id to " + containerIdFile, e);
+            }
+        }
+
         if (!dbContainer.getStatus().toLowerCase().contains("up")) {
+            //docker logs accept seconds since epoch, a second earlier in case clocks are not in sync
+            int startedAt = (int) (System.currentTimeMillis() / 1000) - 1;
             docker.startContainerCmd(dbContainer.getId()).exec();
 
             if (StringUtils.isBlank(dbUri)){
@@ -65,21 +116,60 @@ public class RunDb extends AbstractDockerMojo {
             if (StringUtils.isBlank(username)) username = "root";
             if (StringUtils.isBlank(password)) password = DEFAULT_MYSQL_PASSWORD;
 
-            //wait until MySQL is ready for connections, usually takes miliseconds,
-            //but if there is automatically created connection after start-up, it may be refused
-            long start = System.currentTimeMillis();
-            showMessage("Trying to connect to the DB...");
-            while (System.currentTimeMillis() - start < 30000) {
-                try {
-                    DriverManager.getConnection(dbUri, username, password);
-                    //breaks only if connection is established
-                    showMessage("Connected to the DB.");
+            showMessage("Waiting for the DB to be ready for connections...");
+            waitUntilReady(dbContainer.getId(), startedAt);
+        }
+    }
+
+    /**
+     * Waits with exponential backoff until MySQL logs that it is ready for connections and a connection can be opened.
+     * Fails fast if the container stops.
+     */
+    private void waitUntilReady(String containerId, int startedAt) throws MojoExecutionException {
+        long start = System.currentTimeMillis();
+        long deadline = start + TimeUnit.SECONDS.toMillis(dbReadyTimeout);
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        boolean readyInLogs = false;
+        while (true) {
+            if (!readyInLogs) {
+                readyInLogs = logsContain(containerId, startedAt, READY_FOR_CONNECTIONS);
+            }
+            //logs may be unavailable, e.g. with custom logging driver, so connection is tried when waiting takes longer
+            if (readyInLogs || System.currentTimeMillis() - start > MAX_BACKOFF_MILLIS * 5) {
+                if (canConnect()) {
+                    showMessage(String.format("Connected to the DB after %.1fs.", (System.currentTimeMillis() - start) / 1000.0));
                     return;
-                } catch (Exception e) {
-                    //do nothing, iterate again
                 }
             }
-            throw new MojoExecutionException("Failed to connect to the DB in the '" + this.container + "' container at '" + dbUri + "'");
+            if (!isContainerRunning(containerId)) {
+                throw new MojoExecutionException("The '" + container + "' container stopped while starting the DB. Run `docker logs "
+                        + container + "` to see why.");
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                Thread.sleep(Math.min(backoff, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while waiting for the DB", e);
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+        throw new MojoExecutionException("Failed to connect to the DB in the '" + this.container + "' container at '" + dbUri
+                + "' in " + dbReadyTimeout + "s. Use -DdbReadyTimeout to wait longer.");
+    }
+
+    private boolean canConnect() {
+        Properties info = new Properties();
+        info.setProperty("user", username);
+        info.setProperty("password", password);
+        info.setProperty("connectTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(dbConnectTimeout)));
+        try (Connection connection = DriverManager.getConnection(dbUri, info)) {
+            return connection.isValid(dbConnectTimeout);
+        } catch (SQLException e) {
+            return false;
         }
     }
 
@@ -40,4 +40,19 @@ public class CloneIntegrationTest extends AbstractSdkIntegrationTest {
 
         assertThat(remotes, hasItem("upstream"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void clone_shouldCloneOnlyLastCommitOfSingleBranch() throws Exception{
+        addTaskParam("groupId", "org.openmrs.module");
+        addTaskParam("artifactId", "appui");
+        addTaskParam("githubUsername", "tmarzeion");
+        addTaskParam("githubPassword", "TEST CASE");
+        addTaskParam("depth", "1");
+        addTaskParam("singleBranch", "true");
+        executeTask("clone");
+
+        assertSuccess();
+        assertFilePresent("/openmrs-module-appui/pom.xml");
+        assertFilePresent("/openmrs-module-appui/.git/shallow");
+    }
+}
@@ -12,10 +12,12 @@ import org.apache.maven.settings.Proxy;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
 import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.utility.ConnectionPool;
 import org.openmrs.maven.plugins.utility.DefaultJira;
 import org.openmrs.maven.plugins.utility.DistroHelper;
 import org.openmrs.maven.plugins.git.DefaultGitHelper;
 import org.openmrs.maven.plugins.git.GitHelper;
+import org.openmrs.maven.plugins.git.NativeGitHelper;
 import org.openmrs.maven.plugins.utility.DockerHelper;
 import org.openmrs.maven.plugins.utility.Jira;
 import org.openmrs.maven.plugins.utility.ModuleInstaller;
@@ -25,6 +27,9 @@ import org.openmrs.maven.plugins.utility.Wizard;
 
 import java.io.File;
 import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *
@@ -107,6 +112,27 @@ public abstract class AbstractTask extends AbstractMojo {
      */
     boolean stats;
 
+    /**
+     * git implementation, 'native' runs fetch, rebase, push and clone with git executable instead of JGit
+     *
+     * @parameter expression="${git}" default-value="jgit"
+     */
+    String gitImplementation;
+
+    /**
+     * seconds to wait for a connection to the DB
+     *
+     * @parameter expression="${dbConnectTimeout}" default-value="10"
+     */
+    int dbConnectTimeout;
+
+    /**
+     * seconds to wait for a result of a DB statement, 0 to wait indefinitely
+     *
+     * @parameter expression="${dbSocketTimeout}" default-value="0"
+     */
+    int dbSocketTimeout;
+
     /**
      * wizard for resolving artifact available versions
      */
@@ -137,6 +163,15 @@ public abstract class AbstractTask extends AbstractMojo {
      */
     DockerHelper dockerHelper;
 
+    /**
+     * servers loaded during the goal, shared with nested tasks, so that each server is validated and parsed once
+     */
+    Map<String, Server> loadedServers;
+
+    /**
+     * DB connections opened during the goal, shared with nested tasks and closed when the goal ends
+     */
+    ConnectionPool connectionPool;
 
     public AbstractTask(){}
 
@@ -153,6 +188,8 @@ public abstract class AbstractTask extends AbstractMojo {
         this.gitHelper = other.gitHelper;
         this.dockerHelper = other.dockerHelper;
 	this.settings = other.settings;
+        this.loadedServers = other.loadedServers;
+        this.connectionPool = other.connectionPool;
         initTask();
     }
 
@@ -161,7 +198,7 @@ public abstract class AbstractTask extends AbstractMojo {
             jira = new DefaultJira();
         }
         if(gitHelper == null){
-            gitHelper = new DefaultGitHelper();
+            gitHelper = NativeGitHelper.NAME.equals(gitImplementation) ? new NativeGitHelper() : new DefaultGitHelper();
         }
         if(versionsHelper == null){
             versionsHelper = new VersionsHelper(artifactFactory, mavenProject, mavenSession, artifactMetadataSource);
@@ -170,11 +207,17 @@ public abstract class AbstractTask extends AbstractMojo {
             moduleInstaller = new ModuleInstaller(mavenProject, mavenSession, pluginManager, versionsHelper);
         }
         if(distroHelper == null){
-            distroHelper = new DistroHelper(mavenProject, mavenSession, pluginManager, wizard);
+            distroHelper = new DistroHelper(mavenProject, mavenSession, pluginManager, wizard, moduleInstaller);
         }
         if(dockerHelper == null){
             dockerHelper = new DockerHelper(mavenProject, mavenSession, pluginManager, wizard);
         }
+        if(connectionPool == null){
+            connectionPool = new ConnectionPool(dbConnectTimeout > 0 ? dbConnectTimeout : ConnectionPool.DEFAULT_CONNECT_TIMEOUT, dbSocketTimeout);
+        }
+        if(loadedServers == null){
+            loadedServers = Collections.synchronizedMap(new HashMap<String, Server>());
+        }
         if(StringUtils.isNotBlank(openMRSPath)){
             Server.setServersPath(openMRSPath);
         }
@@ -188,19 +231,41 @@ public abstract class AbstractTask extends AbstractMojo {
     public void execute() throws MojoExecutionException, MojoFailureException {
         initTask();
         new StatsManager(wizard, mavenSession, stats).incrementGoalStats();
-        executeTask();
+        try {
+            executeTask();
+        } finally {
+            connectionPool.close();
+        }
     }
 
     abstract public void executeTask() throws MojoExecutionException, MojoFailureException;
 
+    /**
+     * Loads and validates server, or returns the server already loaded by this or parent task
+     */
     public Server loadValidatedServer(String serverId) throws MojoExecutionException {
-        File serversPath = Server.getServersPathFile();
-        File serverPath = new File(serversPath, serverId);
-        new ServerUpgrader(this).validateServerMetadata(serverPath);
-        Server server = Server.loadServer(serverPath);
+        Server server = loadedServers != null ? loadedServers.get(serverId) : null;
+        if (server == null) {
+            File serversPath = Server.getServersPathFile();
+            File serverPath = new File(serversPath, serverId);
+            new ServerUpgrader(this).validateServerMetadata(serverPath);
+            server = Server.loadServer(serverPath);
+            if (loadedServers != null) {
+                loadedServers.put(serverId, server);
+            }
+        }
         return server;
     }
 
+    /**
+     * Forgets server loaded by {@link #loadValidatedServer(String)}, must be called if server is deleted or recreated
+     */
+    void unloadServer(String serverId) {
+        if (loadedServers != null) {
+            loadedServers.remove(serverId);
+        }
+    }
+
     public Proxy getProxyFromSettings() {
         if (settings == null) {
             return null;
@@ -0,0 +1,263 @@
+package org.openmrs.maven.plugins;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.utility.CompositeException;
+import org.openmrs.maven.plugins.utility.DefaultWizard;
+import org.openmrs.maven.plugins.utility.DistroHelper;
+import org.openmrs.maven.plugins.utility.DockerHelper;
+import org.openmrs.maven.plugins.utility.MojoExecutions;
+import org.openmrs.maven.plugins.utility.Project;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs deploy, reset, pull or build for many servers concurrently in a single Maven invocation.
+ * Per-server tasks get their own wizard and run in non-interactive mode; batchAnswers, if given, are used
+ * for every server. Other helpers, loaded servers, the connection pool and downloaded distro properties are shared. Git and file work runs concurrently, while mojo executions, e.g. dependency:copy
+ * or run-db, are serialized by {@link MojoExecutions}, since they share the Maven session.
+ *
+ * @goal batch
+ * @requiresProject false
+ */
+public class Batch extends AbstractTask {
+
+    private static final String TASK_DEPLOY = "deploy";
+    private static final String TASK_RESET = "reset";
+    private static final String TASK_PULL = "pull";
+    private static final String TASK_BUILD = "build";
+    private static final List<String> TASKS = Arrays.asList(TASK_DEPLOY, TASK_RESET, TASK_PULL, TASK_BUILD);
+    private static final String ALL_SERVERS = "all";
+    private static final String SUMMARY_TMPL = "%-30s %-8s %10s";
+
+    /**
+     * distro properties downloaded for any server, so that each distro is downloaded once
+     */
+    private final Map<String, Properties> distroPropertiesCache = new ConcurrentHashMap<>();
+
+    /**
+     * task to run for each server: deploy, reset, pull or build
+     *
+     * @parameter expression="${task}"
+     */
+    private String task;
+
+    /**
+     * comma separated list of server ids or glob patterns, or 'all'
+     *
+     * @parameter expression="${servers}"
+     */
+    private String servers;
+
+    /**
+     * number of servers processed concurrently
+     *
+     * @parameter expression="${threads}" default-value="4"
+     */
+    private int threads;
+
+    /**
+     * @parameter expression="${distro}"
+     */
+    private String distro;
+
+    /**
+     * @parameter expression="${platform}"
+     */
+    private String platform;
+
+    /**
+     * @parameter expression="${branch}"
+     */
+    private String branch;
+
+    @Override
+    public void executeTask() throws MojoExecutionException, MojoFailureException {
+        task = wizard.promptForMissingValueWithOptions("Which task would you like to run?%s", task, "task", TASKS);
+        if (!TASKS.contains(task)) {
+            throw new MojoExecutionException("Invalid task '" + task + "', only " + StringUtils.join(TASKS, ", ") + " are supported");
+        }
+        if (TASK_DEPLOY.equals(task) && distro == null && platform == null) {
+            throw new MojoExecutionException("Please specify -Ddistro or -Dplatform to deploy");
+        }
+        servers = wizard.promptForValueIfMissingWithDefault("Specify servers (-D%s) as comma separated ids, patterns or 'all'",
+                servers, "servers", ALL_SERVERS);
+        List<String> serverIds = selectServers(servers, wizard.getListOfServers());
+        if (serverIds.isEmpty()) {
+            throw new MojoExecutionException("No servers match '" + servers + "'");
+        }
+        wizard.showMessage(String.format("Running %s for servers: %s", task, StringUtils.join(serverIds, ", ")));
+
+        List<List<String>> groups = groupServers(serverIds);
+        final Map<String, Long> times = new LinkedHashMap<>();
+        final Map<String, Exception> failures = new LinkedHashMap<>();
+        for (String serverId : serverIds) {
+            times.put(serverId, null);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, groups.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (final List<String> group : groups) {
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() {
+                        for (String serverId : group) {
+                            long start = System.currentTimeMillis();
+                            try {
+                                createServerTask(serverId).executeTask();
+                            } catch (Exception e) {
+                                synchronized (failures) {
+                                    failures.put(serverId, e);
+                                }
+                            }
+                            synchronized (times) {
+                                times.put(serverId, System.currentTimeMillis() - start);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for servers", e);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Failed to run " + task, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        CompositeException allExceptions = new CompositeException("Failed to " + task + " servers: " + StringUtils.join(failures.keySet(), ", "));
+        wizard.showMessage(String.format(SUMMARY_TMPL, "Server", "Status", "Time [s]"));
+        for (Map.Entry<String, Long> entry : times.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            String time = entry.getValue() != null ? String.format("%.1f", entry.getValue() / 1000.0) : "-";
+            wizard.showMessage(String.format(SUMMARY_TMPL, entry.getKey(), failure == null ? "OK" : "FAILED", time));
+            if (failure != null) {
+                allExceptions.add(entry.getKey(), failure);
+            }
+        }
+        allExceptions.checkAndThrow();
+    }
+
+    private AbstractTask createServerTask(String serverId) {
+        DefaultWizard serverWizard = new DefaultWizard();
+        serverWizard.setInteractiveMode(false);
+        if (batchAnswers != null && !batchAnswers.isEmpty()) {
+            serverWizard.setAnswers(new ArrayDeque<>(batchAnswers));
+        } else {
+            //confirm changes, e.g. distro upgrade, the same way for each server
+            serverWizard.setAnswers(new ArrayDeque<>(Arrays.asList("y")));
+        }
+        AbstractTask serverTask = newServerTask(this, serverId);
+        //helpers which prompt are bound to the wizard of the server, so that they never prompt through the wizard of the batch
+        serverTask.wizard = serverWizard;
+        serverTask.distroHelper = new DistroHelper(mavenProject, mavenSession, pluginManager, serverWizard,
+                moduleInstaller, distroPropertiesCache);
+        serverTask.dockerHelper = new DockerHelper(mavenProject, mavenSession, pluginManager, serverWizard);
+        return serverTask;
+    }
+
+    /**
+     * @param parent provides the helpers of the server, the wizard and helpers bound to it are replaced afterwards
+     */
+    AbstractTask newServerTask(AbstractTask parent, String serverId) {
+        switch (task) {
+            case TASK_DEPLOY:
+                return new Deploy(parent, serverId, distro, platform);
+            case TASK_RESET:
+                return new Reset(parent, serverId);
+            case TASK_PULL:
+                return new Pull(parent, serverId, branch);
+            default:
+                return new Build(parent, serverId);
+        }
+    }
+
+    /**
+     * @param selector comma separated list of server ids or glob patterns, or 'all'
+     * @return ids of existing servers matching selector, in order of the list of existing servers
+     */
+    static List<String> selectServers(String selector, List<String> existingServers) throws MojoExecutionException {
+        Set<String> selected = new LinkedHashSet<>();
+        for (String item : selector.split(",")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            if (ALL_SERVERS.equals(item)) {
+                selected.addAll(existingServers);
+            } else if (item.contains("*") || item.contains("?") || item.contains("[") || item.contains("{")) {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + item);
+                for (String serverId : existingServers) {
+                    if (matcher.matches(Paths.get(serverId))) {
+                        selected.add(serverId);
+                    }
+                }
+            } else if (existingServers.contains(item)) {
+                selected.add(item);
+            } else {
+                throw new MojoExecutionException("There is no server with server id: " + item);
+            }
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * Servers which watch the same project must not be pulled or built concurrently,
+     * so they are put in the same group, which is processed sequentially
+     */
+    private List<List<String>> groupServers(List<String> serverIds) throws MojoExecutionException {
+        List<List<String>> groups = new ArrayList<>();
+        if (!TASK_PULL.equals(task) && !TASK_BUILD.equals(task)) {
+            for (String serverId : serverIds) {
+                groups.add(new ArrayList<>(Arrays.asList(serverId)));
+            }
+            return groups;
+        }
+
+        List<Set<String>> groupPaths = new ArrayList<>();
+        for (String serverId : serverIds) {
+            Set<String> paths = new HashSet<>();
+            for (Project project : Server.loadServer(serverId).getWatchedProjects()) {
+                paths.add(project.getPath());
+            }
+            List<String> group = new ArrayList<>(Arrays.asList(serverId));
+            for (int i = groups.size() - 1; i >= 0; i--) {
+                if (!Collections.disjoint(groupPaths.get(i), paths)) {
+                    group.addAll(0, groups.remove(i));
+                    paths.addAll(groupPaths.remove(i));
+                }
+            }
+            groups.add(group);
+            groupPaths.add(paths);
+        }
+        return groups;
+    }
+}
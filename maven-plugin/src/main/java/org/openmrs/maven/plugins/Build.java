@@ -11,6 +11,7 @@ import org.apache.maven.shared.invoker.InvocationResult;
 import org.apache.maven.shared.invoker.Invoker;
 import org.apache.maven.shared.invoker.MavenInvocationException;
 import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.utility.OwaBuildCache;
 import org.openmrs.maven.plugins.utility.OwaHelper;
 import org.openmrs.maven.plugins.utility.Project;
 
@@ -46,8 +47,18 @@ public class Build extends AbstractTask {
      */
     protected String nodeVersion;
 
+    /**
+     * @parameter expression="${skipOwaBuildCache}" default-value="false"
+     */
+    private boolean skipOwaBuildCache;
+
     protected OwaHelper owaHelper;
 
+    /**
+     * null if OWAs are always installed and built
+     */
+    protected OwaBuildCache owaBuildCache;
+
     public Build(){}
 
     public Build(AbstractTask other) { super(other); }
@@ -60,6 +71,9 @@ public class Build extends AbstractTask {
     @Override
     public void executeTask() throws MojoExecutionException, MojoFailureException {
         this.owaHelper = new OwaHelper(mavenSession, mavenProject, pluginManager, wizard);
+        if (!skipOwaBuildCache) {
+            this.owaBuildCache = new OwaBuildCache(new File(Server.getServersPathFile(), OwaBuildCache.CACHE_DIR));
+        }
         boolean projectDetected = false;
         boolean buildExecuted = false;
 
@@ -153,9 +167,38 @@ public class Build extends AbstractTask {
 
         boolean useSystemNode = owaHelper.resolveNodeAndNpm(nodeVersion, npmVersion, null);
 
-        owaHelper.installNodeModules(useSystemNode);
+        if (owaBuildCache == null) {
+            owaHelper.installNodeModules(useSystemNode);
+            runNpmBuild(useSystemNode);
+            return;
+        }
 
-        runNpmBuild(useSystemNode);
+        File projectDir = mavenProject.getBasedir();
+        String fingerprint = owaBuildCache.getDependenciesFingerprint(projectDir, getToolchainId(useSystemNode));
+        if (owaBuildCache.isNodeModulesUpToDate(projectDir, fingerprint)) {
+            wizard.showMessage("Node modules are up to date, skipping npm install");
+        } else {
+            owaHelper.installNodeModules(useSystemNode);
+            owaBuildCache.saveNodeModulesFingerprint(projectDir, fingerprint);
+        }
+
+        String sourceHash = owaBuildCache.getSourceHash(projectDir, fingerprint);
+        if (owaBuildCache.restoreOutput(projectDir, sourceHash)) {
+            wizard.showMessage("Sources did not change, restored " + OwaBuildCache.OUTPUT_DIR + " from the build cache");
+        } else {
+            runNpmBuild(useSystemNode);
+            owaBuildCache.saveOutput(projectDir, sourceHash);
+        }
+    }
+
+    private String getToolchainId(boolean useSystemNode) {
+        if (useSystemNode) {
+            return "system node " + owaHelper.getSystemNodeVersion() + " npm " + owaHelper.getSystemNpmVersion();
+        } else if (owaHelper.getToolchainDir() != null) {
+            return owaHelper.getToolchainDir().getName();
+        } else {
+            return "project node " + owaHelper.getProjectNodeVersion() + " npm " + owaHelper.getProjectNpmVersion();
+        }
     }
 
     private void runNpmBuild(boolean useSystemNode) throws MojoExecutionException {
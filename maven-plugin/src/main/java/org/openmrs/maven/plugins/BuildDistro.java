@@ -1,8 +1,5 @@
 package org.openmrs.maven.plugins;
 
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -10,16 +7,25 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.openmrs.maven.plugins.bintray.OpenmrsBintray;
 import org.openmrs.maven.plugins.model.Artifact;
+import org.openmrs.maven.plugins.model.DistroManifest;
 import org.openmrs.maven.plugins.model.DistroProperties;
 import org.openmrs.maven.plugins.model.Server;
 import org.openmrs.maven.plugins.model.Version;
+import org.openmrs.maven.plugins.utility.BundledWarBuilder;
 import org.openmrs.maven.plugins.utility.DistroHelper;
 import org.openmrs.maven.plugins.utility.Project;
 import org.openmrs.maven.plugins.utility.SDKConstants;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  *  @goal build-distro
@@ -47,9 +53,19 @@ public class BuildDistro extends AbstractTask {
 
     private static final String DB_DUMP_PATH = "dbdump" + File.separator + "dump.sql";
 
+    private static final String WEB_INF = "WEB-INF/";
+
     private static final String WAR_FILE_MODULES_DIRECTORY_NAME = "bundledModules";
 
+    private static final String WAR_FILE_OWAS_DIRECTORY_NAME = "bundledOwas";
+
     private static final String WEB = "web";
+    private static final String MODULES = "modules";
+    private static final String SNAPSHOT_MODULES = "modules-snapshot";
+    private static final String OWA = "owa";
+    //1980-01-01T00:00:00Z, the earliest time which can be stored in a zip
+    private static final long NORMALIZED_TIMESTAMP = 315532800000L;
+    private static final String DOCKERFILE = "Dockerfile";
     private static final String DOCKER_COMPOSE_YML = "docker-compose.yml";
     private static final String DOCKER_COMPOSE_PROD_YML = "docker-compose.prod.yml";
     private static final String DOCKER_COMPOSE_OVERRIDE_YML = "docker-compose.override.yml";
@@ -79,14 +95,35 @@ public class BuildDistro extends AbstractTask {
      */
     private String reset;
 
+    /**
+     * reuse files of the previous build, which did not change according to its manifest
+     *
+     * @parameter expression="${incremental}" default-value="false"
+     */
+    private boolean incremental;
+
+    /**
+     * check files in an existing build directory against its manifest instead of building
+     *
+     * @parameter expression="${verify}" default-value="false"
+     */
+    private boolean verify;
+
     @Override
     public void executeTask() throws MojoExecutionException, MojoFailureException {
+        if (verify) {
+            verifyBuildDirectory();
+            return;
+        }
+
         File buildDirectory = getBuildDirectory();
 
         File userDir = new File(System.getProperty("user.dir"));
 
         Artifact distroArtifact = null;
         DistroProperties distroProperties = null;
+        //SQL dumps extracted from the distro along with its properties, by name of the entry
+        Map<String, File> distroFiles = new HashMap<>();
 
         if (distro == null) {
             File distroFile = new File(userDir, DistroProperties.DISTRO_FILE_NAME);
@@ -99,10 +136,12 @@ public class BuildDistro extends AbstractTask {
 
                 wizard.showMessage("Building distribution from the source at " + userDir + "...\n");
                 new Build(this).buildProject(config);
-                distroFile = distroHelper.extractFileFromDistro(buildDirectory, distroArtifact, DistroProperties.DISTRO_FILE_NAME);
+                distroFiles = distroHelper.extractFilesFromDistro(buildDirectory, distroArtifact, getDbSql());
+                distroFile = distroFiles.remove(DistroProperties.DISTRO_FILE_NAME);
 
-                if(distroFile.exists()){
+                if(distroFile != null){
                     distroProperties = new DistroProperties(distroFile);
+                    distroFile.delete();
                 } else {
                     wizard.showMessage("Couldn't find " + DistroProperties.DISTRO_FILE_NAME + " in " + distroArtifact);
                 }
@@ -118,8 +157,13 @@ public class BuildDistro extends AbstractTask {
             if(DistroHelper.isRefapp2_3_1orLower(server.getDistroArtifactId(), server.getVersion())){
                 distroProperties = new DistroProperties(server.getVersion());
             } else {
-                distroProperties = distroHelper.downloadDistroProperties(buildDirectory, server);
                 distroArtifact = new Artifact(server.getDistroArtifactId(), server.getVersion(), server.getDistroGroupId(), "jar");
+                distroFiles.putAll(distroHelper.extractFilesFromDistro(buildDirectory, distroArtifact, getDbSql()));
+                File distroFile = distroFiles.remove(DistroProperties.DISTRO_FILE_NAME);
+                if (distroFile != null) {
+                    distroProperties = new DistroProperties(distroFile);
+                    distroFile.delete();
+                }
             }
         }
 
@@ -127,11 +171,35 @@ public class BuildDistro extends AbstractTask {
             throw new IllegalArgumentException("The distro you specified '" + distro + "' could not be retrieved");
         }
 
-        String distroName = buildDistro(buildDirectory, distroArtifact, distroProperties);
+        String distroName;
+        try {
+            distroName = buildDistro(buildDirectory, distroArtifact, distroProperties, distroFiles);
+        } finally {
+            for (File distroFile : distroFiles.values()) {
+                FileUtils.deleteQuietly(distroFile);
+            }
+        }
 
         wizard.showMessage("The '" + distroName + "' distribution created! To start up the server run 'docker-compose up' from " + buildDirectory.getAbsolutePath() + "\n");
     }
 
+    private void verifyBuildDirectory() throws MojoExecutionException {
+        String directory = wizard.promptForValueIfMissingWithDefault("Specify build directory to verify (-Ddir, default: 'docker')", dir, "dir", "docker");
+        File web = new File(directory, WEB);
+        if (!new File(web, DistroManifest.MANIFEST_FILE_NAME).exists()) {
+            throw new MojoExecutionException("The directory at '" + new File(directory).getAbsolutePath() + "' has no "
+                    + WEB + "/" + DistroManifest.MANIFEST_FILE_NAME + ". Run build-distro to create it.");
+        }
+
+        DistroManifest manifest = DistroManifest.load(web);
+        List<String> problems = manifest.verify(web, Runtime.getRuntime().availableProcessors());
+        if (!problems.isEmpty()) {
+            throw new MojoExecutionException("The distribution at '" + web.getAbsolutePath() + "' does not match its manifest:\n"
+                    + StringUtils.join(problems, "\n"));
+        }
+        wizard.showMessage("All " + manifest.getEntries().size() + " files in '" + web.getAbsolutePath() + "' match the manifest.");
+    }
+
     private File getBuildDirectory() {
         final File targetDir;
         if (StringUtils.isBlank(dir)) {
@@ -145,8 +213,13 @@ public class BuildDistro extends AbstractTask {
             if (targetDir.isDirectory()) {
                 if (!Boolean.valueOf(reset)) {
                     if(isDockerComposeCreated(targetDir)){
-                        wizard.showMessage("The directory at '" + targetDir.getAbsolutePath() + "' contains docker config. Only modules and openmrs.war will be overriden");
-                        deleteDistroFiles(new File(targetDir, WEB));
+                        File web = new File(targetDir, WEB);
+                        if (incremental && new File(web, DistroManifest.MANIFEST_FILE_NAME).exists()) {
+                            wizard.showMessage("The directory at '" + targetDir.getAbsolutePath() + "' contains docker config. Only changed modules, OWAs and openmrs.war will be updated");
+                        } else {
+                            wizard.showMessage("The directory at '" + targetDir.getAbsolutePath() + "' contains docker config. Only modules and openmrs.war will be overriden");
+                            deleteDistroFiles(web);
+                        }
                     }else if (targetDir.list().length != 0) {
                         wizard.showMessage("The directory at '" + targetDir.getAbsolutePath() + "' is not empty. All its content will be lost.");
                         boolean chooseDifferent = wizard.promptYesNo("Would you like to choose a different directory?");
@@ -174,7 +247,8 @@ public class BuildDistro extends AbstractTask {
 
     private void deleteDistroFiles(File targetDir){
         try {
-            FileUtils.deleteDirectory(new File(targetDir, "modules"));
+            FileUtils.deleteDirectory(new File(targetDir, MODULES));
+            FileUtils.deleteDirectory(new File(targetDir, SNAPSHOT_MODULES));
             new File(targetDir, OPENMRS_WAR).delete();
             new File(targetDir, OPENMRS_DISTRO_PROPERTIES).delete();
         } catch (IOException e) {
@@ -190,47 +264,42 @@ public class BuildDistro extends AbstractTask {
         }
     }
 
-    private String buildDistro(File targetDirectory, Artifact distroArtifact, DistroProperties distroProperties) throws MojoExecutionException {
+    /**
+     * @param distroFiles SQL dumps already extracted from the distro, by name of the entry
+     */
+    private String buildDistro(File targetDirectory, Artifact distroArtifact, DistroProperties distroProperties,
+                               Map<String, File> distroFiles) throws MojoExecutionException {
         InputStream dbDumpStream;
         wizard.showMessage("Downloading modules...\n");
 
         String distroName = adjustImageName(distroProperties.getName());
         File web = new File(targetDirectory, WEB);
 
-        moduleInstaller.installModules(distroProperties.getWarArtifacts(distroHelper, targetDirectory), web.getAbsolutePath());
-        renameWebApp(web);
+        web.mkdirs();
+        DistroManifest previousManifest = DistroManifest.load(web);
+        //files of the previous build are reused only in the incremental mode and if it was bundled the same way,
+        //since the war of a bundled build is not the plain war and a plain build has modules outside of the war
+        boolean sameLayout = Boolean.valueOf(bundled).equals(previousManifest.getBundled());
+        DistroManifest reusableManifest = incremental && sameLayout ? previousManifest : new DistroManifest();
+        if (incremental && !sameLayout && !previousManifest.isEmpty()) {
+            wizard.showMessage("The previous build was " + (bundled ? "not " : "") + "bundled, rebuilding all files.");
+        }
+        DistroManifest manifest = new DistroManifest();
+        manifest.setBundled(bundled);
 
+        List<Artifact> warArtifacts = distroProperties.getWarArtifacts(distroHelper, targetDirectory);
+        List<Artifact> modules = distroProperties.getModuleArtifacts(distroHelper, targetDirectory);
+        List<Artifact> owas = distroProperties.getOwaArtifacts(distroHelper, targetDirectory);
         if (bundled) {
-            try {
-                ZipFile warfile = new ZipFile(new File(web, OPENMRS_WAR));
-                File tempDir = new File(web, "WEB-INF");
-                moduleInstaller.installModules(distroProperties.getModuleArtifacts(distroHelper, targetDirectory),
-                        new File(tempDir, WAR_FILE_MODULES_DIRECTORY_NAME).getAbsolutePath());
-
-                File owasDir = new File(tempDir, "bundledOwas");
-                owasDir.mkdirs();
-                downloadOWAs(targetDirectory, distroProperties, owasDir);
-
-                warfile.addFolder(tempDir, new ZipParameters());
-                try {
-                    FileUtils.deleteDirectory(tempDir);
-                } catch (IOException e) {
-                    throw new RuntimeException("Failed to remove " + tempDir.getName() + " file", e);
-                }
-            } catch (ZipException e) {
-                throw new RuntimeException("Failed to bundle modules into *.war file", e);
-            }
+            installBundledWar(web, warArtifacts, modules, owas, reusableManifest, manifest);
         }
         else {
-            File modulesDir = new File(web, "modules");
-            modulesDir.mkdirs();
-            moduleInstaller.installModules(distroProperties.getModuleArtifacts(distroHelper, targetDirectory),
-                    modulesDir.getAbsolutePath());
-
-            File owasDir = new File(web, "owa");
-            owasDir.mkdirs();
-            downloadOWAs(targetDirectory, distroProperties, owasDir);
+            installWar(web, warArtifacts, reusableManifest, manifest);
+            installModules(web, modules, reusableManifest, manifest);
+            installOWAs(web, owas, reusableManifest, manifest);
         }
+        deleteStaleFiles(web, previousManifest, manifest);
+        manifest.saveTo(web);
 
         wizard.showMessage("Creating Docker Compose configuration...\n");
         String distroVersion = adjustImageName(distroProperties.getVersion());
@@ -243,24 +312,202 @@ public class BuildDistro extends AbstractTask {
         copyDockerfile(web, distroProperties);
         distroProperties.saveTo(web);
 
-        dbDumpStream = getSqlDumpStream(StringUtils.isNotBlank(dbSql) ? dbSql : distroProperties.getSqlScriptPath(), targetDirectory, distroArtifact);
+        dbDumpStream = getSqlDumpStream(StringUtils.isNotBlank(dbSql) ? dbSql : distroProperties.getSqlScriptPath(), targetDirectory,
+                distroArtifact, distroFiles);
         if(dbDumpStream != null) {
             copyDbDump(targetDirectory, dbDumpStream);
         }
         //clean up extracted sql file
         cleanupSqlFiles(targetDirectory);
+        normalizeTimestamps(web);
 
         return distroName;
     }
 
-    private void downloadOWAs(File targetDirectory, DistroProperties distroProperties, File owasDir) throws MojoExecutionException {
-        List<Artifact> owas = distroProperties.getOwaArtifacts(distroHelper, targetDirectory);
-        OpenmrsBintray openmrsBintray = new OpenmrsBintray(getProxyFromSettings());
+    /**
+     * @param previousManifest manifest of files which can be reused if they did not change
+     * @param manifest manifest to which installed files are added
+     */
+    private void installWar(File web, List<Artifact> warArtifacts, DistroManifest previousManifest, DistroManifest manifest) throws MojoExecutionException {
+        Artifact war = warArtifacts.size() == 1 ? warArtifacts.get(0) : null;
+        if (war != null) {
+            DistroManifest.Entry entry = previousManifest.findUpToDate(DistroManifest.getCoordinates(war), web);
+            if (entry != null && entry.getPath().equals(OPENMRS_WAR)) {
+                manifest.add(entry);
+                return;
+            }
+        }
 
-        if (!owas.isEmpty()) {
-            wizard.showMessage("Downloading OWAs...\n");
-            for (Artifact owa: owas) {
-                openmrsBintray.downloadOWA(owasDir, owa.getArtifactId(), owa.getVersion());
+        new File(web, OPENMRS_WAR).delete();
+        moduleInstaller.installModules(warArtifacts, web.getAbsolutePath());
+        renameWebApp(web);
+        if (war != null) {
+            manifest.add(DistroManifest.getCoordinates(war), web, OPENMRS_WAR);
+        }
+    }
+
+    /**
+     * SNAPSHOT modules are installed separately from release modules, so that they are copied to the image
+     * in their own layer and a rebuild does not invalidate the layer with release modules.
+     * Dockerfiles generated by an older SDK, which do not copy the SNAPSHOT layer, get all modules in one directory.
+     */
+    private void installModules(File web, List<Artifact> modules, DistroManifest previousManifest, DistroManifest manifest) throws MojoExecutionException {
+        new File(web, MODULES).mkdirs();
+        boolean layered = isLayeredDockerfile(new File(web, DOCKERFILE));
+        if (layered) {
+            //docker fails to copy a directory which does not exist
+            new File(web, SNAPSHOT_MODULES).mkdirs();
+        }
+
+        Map<String, Artifact> releaseModules = new LinkedHashMap<>();
+        Map<String, Artifact> snapshotModules = new LinkedHashMap<>();
+        for (Artifact module : modules) {
+            boolean snapshot = layered && new Version(module.getVersion()).isSnapshot();
+            String path = (snapshot ? SNAPSHOT_MODULES : MODULES) + "/" + module.getDestFileName();
+            DistroManifest.Entry entry = previousManifest.findUpToDate(DistroManifest.getCoordinates(module), web);
+            if (entry != null && entry.getPath().equals(path)) {
+                manifest.add(entry);
+                continue;
+            }
+            //the dependency plugin does not overwrite existing release files
+            new File(web, path).delete();
+            if (snapshot) {
+                snapshotModules.put(path, module);
+            } else {
+                releaseModules.put(path, module);
+            }
+        }
+        if (!releaseModules.isEmpty()) {
+            moduleInstaller.installModules(new ArrayList<>(releaseModules.values()), new File(web, MODULES).getAbsolutePath());
+        }
+        if (!snapshotModules.isEmpty()) {
+            moduleInstaller.installModules(new ArrayList<>(snapshotModules.values()), new File(web, SNAPSHOT_MODULES).getAbsolutePath());
+        }
+        releaseModules.putAll(snapshotModules);
+        for (Map.Entry<String, Artifact> module : releaseModules.entrySet()) {
+            manifest.add(DistroManifest.getCoordinates(module.getValue()), web, module.getKey());
+        }
+    }
+
+    private boolean isLayeredDockerfile(File dockerfile) throws MojoExecutionException {
+        if (!dockerfile.exists()) {
+            return true;
+        }
+        try {
+            return FileUtils.readFileToString(dockerfile).contains(SNAPSHOT_MODULES);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read " + dockerfile, e);
+        }
+    }
+
+    private void installOWAs(File web, List<Artifact> owas, DistroManifest previousManifest, DistroManifest manifest) throws MojoExecutionException {
+        File owasDir = new File(web, OWA);
+        owasDir.mkdirs();
+        OpenmrsBintray openmrsBintray = null;
+        for (Artifact owa : owas) {
+            String coordinates = DistroManifest.getOwaCoordinates(owa);
+            DistroManifest.Entry entry = previousManifest.findUpToDate(coordinates, web);
+            if (entry != null) {
+                manifest.add(entry);
+                continue;
+            }
+            if (openmrsBintray == null) {
+                wizard.showMessage("Downloading OWAs...\n");
+                openmrsBintray = new OpenmrsBintray(getProxyFromSettings());
+            }
+            File file = openmrsBintray.downloadOWA(owasDir, owa.getArtifactId(), owa.getVersion());
+            manifest.add(coordinates, web, OWA + "/" + file.getName());
+        }
+    }
+
+    /**
+     * The bundled war is reused only if none of its files changed, otherwise it is bundled from scratch
+     */
+    private void installBundledWar(File web, List<Artifact> warArtifacts, List<Artifact> modules, List<Artifact> owas,
+                                   DistroManifest previousManifest, DistroManifest manifest) throws MojoExecutionException {
+        Artifact war = warArtifacts.size() == 1 ? warArtifacts.get(0) : null;
+        if (war != null && isBundledWarUpToDate(web, war, modules, owas, previousManifest)) {
+            for (DistroManifest.Entry entry : previousManifest.getEntries()) {
+                manifest.add(entry);
+            }
+            return;
+        }
+
+        installWar(web, warArtifacts, new DistroManifest(), new DistroManifest());
+        bundleIntoWar(new File(web, OPENMRS_WAR), modules, owas, manifest);
+        if (war != null) {
+            manifest.add(DistroManifest.getCoordinates(war), web, OPENMRS_WAR);
+        }
+    }
+
+    private boolean isBundledWarUpToDate(File web, Artifact war, List<Artifact> modules, List<Artifact> owas,
+                                         DistroManifest previousManifest) throws MojoExecutionException {
+        Set<String> coordinates = new HashSet<>();
+        coordinates.add(DistroManifest.getCoordinates(war));
+        for (Artifact module : modules) {
+            coordinates.add(DistroManifest.getCoordinates(module));
+        }
+        for (Artifact owa : owas) {
+            coordinates.add(DistroManifest.getOwaCoordinates(owa));
+        }
+
+        Set<String> previousCoordinates = new HashSet<>();
+        for (DistroManifest.Entry entry : previousManifest.getEntries()) {
+            if (entry.getCoordinates().contains("SNAPSHOT")) {
+                return false;
+            }
+            previousCoordinates.add(entry.getCoordinates());
+        }
+        if (!coordinates.equals(previousCoordinates)) {
+            return false;
+        }
+        DistroManifest.Entry warEntry = previousManifest.findUpToDate(DistroManifest.getCoordinates(war), web);
+        return warEntry != null && warEntry.getPath().equals(OPENMRS_WAR);
+    }
+
+    /**
+     * Streams modules from the local repository and downloaded OWAs into the war in a single pass
+     */
+    private void bundleIntoWar(File war, List<Artifact> modules, List<Artifact> owas, DistroManifest manifest) throws MojoExecutionException {
+        BundledWarBuilder warBuilder = new BundledWarBuilder(war);
+        String warPath = OPENMRS_WAR + DistroManifest.NESTED_PATH_SEPARATOR;
+        for (Artifact module : modules) {
+            String entryName = WEB_INF + WAR_FILE_MODULES_DIRECTORY_NAME + "/" + module.getDestFileName();
+            File file = moduleInstaller.resolveArtifact(module);
+            warBuilder.addFile(entryName, file);
+            manifest.add(DistroManifest.getCoordinates(module), warPath + entryName, file);
+        }
+
+        File owasDir = null;
+        try {
+            owasDir = Files.createTempDirectory("openmrs-sdk-owas").toFile();
+            if (!owas.isEmpty()) {
+                wizard.showMessage("Downloading OWAs...\n");
+                OpenmrsBintray openmrsBintray = new OpenmrsBintray(getProxyFromSettings());
+                for (Artifact owa : owas) {
+                    File file = openmrsBintray.downloadOWA(owasDir, owa.getArtifactId(), owa.getVersion());
+                    String entryName = WEB_INF + WAR_FILE_OWAS_DIRECTORY_NAME + "/" + file.getName();
+                    warBuilder.addFile(entryName, file);
+                    manifest.add(DistroManifest.getOwaCoordinates(owa), warPath + entryName, file);
+                }
+            }
+
+            warBuilder.build();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to bundle modules into *.war file", e);
+        } finally {
+            FileUtils.deleteQuietly(owasDir);
+        }
+    }
+
+    /**
+     * Deletes files of the previous build, which are not a part of the current build
+     */
+    private void deleteStaleFiles(File web, DistroManifest previousManifest, DistroManifest manifest) {
+        for (DistroManifest.Entry entry : previousManifest.getStaleEntries(manifest)) {
+            //bundled files are replaced together with the war
+            if (!entry.getPath().contains(DistroManifest.NESTED_PATH_SEPARATOR)) {
+                FileUtils.deleteQuietly(new File(web, entry.getPath()));
             }
         }
     }
@@ -279,17 +526,33 @@ public class BuildDistro extends AbstractTask {
         int majorVersion = new Version(distroProperties.getPlatformVersion(distroHelper, targetDirectory)).getMajorVersion();
         if(majorVersion == 1){
             if (bundled) {
-                copyBuildDistroResource("Dockerfile-jre7-bundled", new File(targetDirectory, "Dockerfile"));
+                copyBuildDistroResource("Dockerfile-jre7-bundled", new File(targetDirectory, DOCKERFILE));
             }
             else {
-                copyBuildDistroResource("Dockerfile-jre7", new File(targetDirectory, "Dockerfile"));
+                copyBuildDistroResource("Dockerfile-jre7", new File(targetDirectory, DOCKERFILE));
             }
         } else {
             if (bundled) {
-                copyBuildDistroResource("Dockerfile-jre8-bundled", new File(targetDirectory, "Dockerfile"));
+                copyBuildDistroResource("Dockerfile-jre8-bundled", new File(targetDirectory, DOCKERFILE));
             }
             else {
-                copyBuildDistroResource("Dockerfile-jre8", new File(targetDirectory, "Dockerfile"));
+                copyBuildDistroResource("Dockerfile-jre8", new File(targetDirectory, DOCKERFILE));
+            }
+        }
+    }
+
+    /**
+     * Files copied to the image keep their timestamps, so they are normalized for the image layers
+     * to be the same when their content is the same
+     */
+    private void normalizeTimestamps(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    normalizeTimestamps(file);
+                }
+                file.setLastModified(NORMALIZED_TIMESTAMP);
             }
         }
     }
@@ -367,7 +630,8 @@ public class BuildDistro extends AbstractTask {
         }
     }
 
-    private InputStream getSqlDumpStream(String sqlScriptPath, File targetDirectory, Artifact distroArtifact) throws MojoExecutionException {
+    private InputStream getSqlDumpStream(String sqlScriptPath, File targetDirectory, Artifact distroArtifact,
+                                         Map<String, File> distroFiles) throws MojoExecutionException {
         InputStream stream = null;
 
         if(sqlScriptPath == null){
@@ -383,7 +647,10 @@ public class BuildDistro extends AbstractTask {
                     stream = resourceUrl.openStream();
                 } else {
                     if(distroArtifact != null && distroArtifact.isValid()){
-                        File extractedSqlFile =  distroHelper.extractFileFromDistro(targetDirectory, distroArtifact, sqlScript);
+                        File extractedSqlFile = distroFiles.get(sqlScript);
+                        if (extractedSqlFile == null) {
+                            extractedSqlFile = distroHelper.extractFileFromDistro(targetDirectory, distroArtifact, sqlScript);
+                        }
                         stream = new FileInputStream(extractedSqlFile);
                     }
                 }
@@ -401,6 +668,13 @@ public class BuildDistro extends AbstractTask {
         return stream;
     }
 
+    /**
+     * @return dump from -DdbSql or null to use the one named by the distro properties
+     */
+    private String getDbSql() {
+        return StringUtils.isNotBlank(dbSql) ? dbSql : null;
+    }
+
     private void copyBuildDistroResource(String resource, File target) {
         URL resourceUrl = getClass().getClassLoader().getResource("build-distro/web/" + resource);
         if (!target.exists()) {
@@ -9,16 +9,18 @@ import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.service.RepositoryService;
 import org.eclipse.jgit.api.Git;
 import org.openmrs.maven.plugins.model.Artifact;
+import org.openmrs.maven.plugins.utility.CompositeException;
 import org.openmrs.maven.plugins.utility.Project;
-import org.openmrs.maven.plugins.utility.SDKConstants;
-import org.twdata.maven.mojoexecutor.MojoExecutor;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-
-import static org.twdata.maven.mojoexecutor.MojoExecutor.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *  @goal clone
@@ -34,6 +36,8 @@ public class Clone extends AbstractTask {
     private String groupId;
 
     /**
+     * artifact id of module to clone, or comma separated list of artifact ids
+     *
      * @parameter expression="${artifactId}"
      */
     private String artifactId;
@@ -48,37 +52,106 @@ public class Clone extends AbstractTask {
      */
     private String githubPassword;
 
+    /**
+     * number of last commits to clone, whole history is cloned if not set
+     *
+     * @parameter expression="${depth}"
+     */
+    private Integer depth;
+
+    /**
+     * branch to check out, default branch of repository if not set
+     *
+     * @parameter expression="${branch}"
+     */
+    private String branch;
+
+    /**
+     * clone only the checked out branch
+     *
+     * @parameter expression="${singleBranch}" default-value="false"
+     */
+    private boolean singleBranch;
+
+    /**
+     * number of repositories cloned concurrently, if more than one artifact id is given
+     *
+     * @parameter expression="${threads}" default-value="4"
+     */
+    private int threads;
+
     @Override
     public void executeTask() throws MojoExecutionException, MojoFailureException {
         groupId = wizard.promptForValueIfMissingWithDefault(null, groupId, "groupId", "org.openmrs.module");
         artifactId = wizard.promptForValueIfMissing(artifactId, "artifactId");
 
-        String version = versionsHelper.getLatestReleasedVersion(new Artifact(artifactId, "0", groupId));
-        String repoUrl;
-
-        try {
-            repoUrl = extractGitHubHttpKeyFromModulePom(artifactId, version, groupId);
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to fetch scm url from maven repository", e);
+        List<String> repoUrls = new ArrayList<>();
+        for (String moduleArtifactId : artifactId.split(",")) {
+            moduleArtifactId = moduleArtifactId.trim();
+            if (moduleArtifactId.isEmpty()) {
+                continue;
+            }
+            String version = versionsHelper.getLatestReleasedVersion(new Artifact(moduleArtifactId, "0", groupId));
+            repoUrls.add(extractGitHubHttpKeyFromModulePom(moduleArtifactId, version, groupId));
         }
 
         githubUsername = wizard.promptForValueIfMissing(githubUsername, "your GitHub username");
         githubPassword = wizard.promptForPasswordIfMissing(githubPassword, "your GitHub password");
 
-        cloneRepo(repoUrl);
+        if (repoUrls.size() == 1) {
+            cloneRepo(repoUrls.get(0));
+        } else {
+            cloneRepos(repoUrls);
+        }
+    }
+
+    /**
+     * Forks and clones repositories concurrently, cloning is network bound
+     */
+    private void cloneRepos(List<String> repoUrls) throws MojoExecutionException {
+        final CompositeException allExceptions = new CompositeException("Failed to clone repositories");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, repoUrls.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (final String repoUrl : repoUrls) {
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() {
+                        try {
+                            cloneRepo(repoUrl);
+                        } catch (Exception e) {
+                            allExceptions.add(repoUrl, e);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while cloning repositories", e);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Failed to clone repositories", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        allExceptions.checkAndThrow();
     }
 
-    private String extractGitHubHttpKeyFromModulePom(String artifactId, String version, String groupId) throws MojoExecutionException, IOException {
-        downloadModulePom(new Artifact(artifactId, version, groupId, "pom"));
-        String pomFileName = this.artifactId+"-"+version+".pom";
-        File pomDir = new File("pom/");
-        File pom = new File("pom/", pomFileName);
-        Model pomProperties = Project.loadProject(pomDir, pomFileName).getModel();
-        String url = pomProperties.getScm().getUrl();
-        pom.delete();
-        pomDir.delete();
-
-        return extractUniversalRepoUrl(url);
+    /**
+     * Reads SCM url from module pom in the local repository, it is downloaded there if missing
+     */
+    private String extractGitHubHttpKeyFromModulePom(String artifactId, String version, String groupId) throws MojoExecutionException {
+        File pom = moduleInstaller.resolveArtifact(new Artifact(artifactId, version, groupId, "pom"));
+        Model model = Project.loadProject(pom.getParentFile(), pom.getName()).getModel();
+        if (model.getScm() == null || StringUtils.isBlank(model.getScm().getUrl())) {
+            throw new MojoExecutionException("Pom of " + groupId + ":" + artifactId + ":" + version + " has no scm url");
+        }
+
+        return extractUniversalRepoUrl(model.getScm().getUrl());
     }
 
     /**
@@ -102,23 +175,6 @@ public class Clone extends AbstractTask {
         }
     }
 
-    private void downloadModulePom(Artifact artifact) throws MojoExecutionException {
-        MojoExecutor.Element[] artifactItems = new MojoExecutor.Element[1];
-        artifactItems[0] = artifact.toElement("pom/");
-        List<Element> configuration = new ArrayList<Element>();
-        configuration.add(element("artifactItems", artifactItems));
-        executeMojo(
-                plugin(
-                        groupId(SDKConstants.PLUGIN_DEPENDENCIES_GROUP_ID),
-                        artifactId(SDKConstants.PLUGIN_DEPENDENCIES_ARTIFACT_ID),
-                        version(SDKConstants.PLUGIN_DEPENDENCIES_VERSION)
-                ),
-                goal("copy"),
-                configuration(configuration.toArray(new Element[0])),
-                executionEnvironment(mavenProject, mavenSession, pluginManager)
-        );
-    }
-
     private void forkRepo(String repoName, String repoOwner) {
         wizard.showMessage("Forking " + repoName + " from " + repoOwner);
         GitHubClient client = new GitHubClient();
@@ -150,10 +206,7 @@ public class Clone extends AbstractTask {
         }
 
         try {
-            Git.cloneRepository()
-                    .setURI(GITHUB_HTTP_SUFFIX + originUrl)
-                    .setDirectory(localPath)
-                    .call();
+            gitHelper.cloneRepository(GITHUB_HTTP_SUFFIX + originUrl, localPath, branch, singleBranch, depth);
             Git git = new Git(gitHelper.getLocalRepository(localPath.getAbsolutePath()));
             gitHelper.addRemoteUpstream(git, localPath.getAbsolutePath());
         } catch (Exception e) {
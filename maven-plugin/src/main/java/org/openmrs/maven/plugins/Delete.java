@@ -30,6 +30,7 @@ public class Delete extends AbstractTask{
         Server server = loadValidatedServer(serverId);
         try {
             FileUtils.deleteDirectory(server.getServerDirectory());
+            unloadServer(serverId);
 
             if(StringUtils.isNotBlank(server.getContainerId())){
                 new DockerHelper(mavenProject, mavenSession, pluginManager, wizard).runDbContainer(
@@ -43,7 +44,7 @@ public class Delete extends AbstractTask{
                 String dbUser = server.getDbUser();
                 String dbPass = server.getDbPassword();
                 String dbUri = server.getDbUri();
-                DBConnector connector = new DBConnector(dbUri, dbUser, dbPass, dbName);
+                DBConnector connector = new DBConnector(connectionPool, dbUri, dbUser, dbPass, dbName);
                 connector.dropDatabase();
                 connector.close();
             }
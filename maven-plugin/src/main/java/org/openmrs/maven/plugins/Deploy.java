@@ -1,5 +1,6 @@
 package org.openmrs.maven.plugins;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.BuildPluginManager;
@@ -12,17 +13,20 @@ import org.openmrs.maven.plugins.bintray.OpenmrsBintray;
 import org.openmrs.maven.plugins.model.Artifact;
 import org.openmrs.maven.plugins.model.DistroProperties;
 import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.model.UpgradePlan;
 import org.openmrs.maven.plugins.model.Version;
 import org.openmrs.maven.plugins.utility.DistroHelper;
 import org.openmrs.maven.plugins.utility.Project;
 import org.openmrs.maven.plugins.utility.SDKConstants;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.*;
+import static org.openmrs.maven.plugins.utility.MojoExecutions.executeMojo;
 
 /**
  * @goal deploy
@@ -75,10 +79,32 @@ public class Deploy extends AbstractTask {
      */
     private String owa;
 
+    /**
+     * @parameter expression="${rollback}" default-value="false"
+     */
+    private boolean rollback;
+
+    /**
+     * @parameter expression="${dryRun}" default-value="false"
+     */
+    private boolean dryRun;
+
+    /**
+     * @parameter expression="${planFile}"
+     */
+    private String planFile;
+
     public Deploy() {}
 
     public Deploy(AbstractTask other) {super(other);}
 
+    public Deploy(AbstractTask other, String serverId, String distro, String platform) {
+        super(other);
+        this.serverId = serverId;
+        this.distro = distro;
+        this.platform = platform;
+    }
+
     public Deploy(MavenProject project, MavenSession session, BuildPluginManager manager) {
         super.mavenProject = project;
         super.mavenSession = session;
@@ -86,6 +112,11 @@ public class Deploy extends AbstractTask {
     }
 
     public void executeTask() throws MojoExecutionException, MojoFailureException {
+        if (rollback) {
+            checkNotDryRun("rollback");
+        } else if (distro == null && (platform != null || owa != null || artifactId != null)) {
+            checkNotDryRun(platform != null ? "platform" : owa != null ? "OWA" : "module");
+        }
         if (serverId == null) {
             File currentProperties = Server.checkCurrentDirForServer();
             if (currentProperties != null) serverId = currentProperties.getName();
@@ -103,13 +134,18 @@ public class Deploy extends AbstractTask {
          */
         ServerUpgrader serverUpgrader = new ServerUpgrader(this);
 
+        if(rollback){
+            serverUpgrader.rollbackUpgrade(server);
+            return;
+        }
+
         if((platform == null && distro == null && owa == null) && artifactId == null){
             Artifact artifact = checkCurrentDirectoryForOpenmrsWebappUpdate(server);
             DistroProperties distroProperties = checkCurrentDirectoryForDistroProperties(server);
             if(artifact != null){
                 deployOpenmrsFromDir(server, artifact);
             } else if(distroProperties!=null){
-                serverUpgrader.upgradeToDistro(server, distroProperties);
+                upgradeToDistro(serverUpgrader, server, distroProperties);
             } else if(checkCurrentDirForModuleProject()) {
                 deployModule(groupId, artifactId, version, server);
             } else {
@@ -117,7 +153,7 @@ public class Deploy extends AbstractTask {
             }
         } else if(distro != null) {
             DistroProperties distroProperties = distroHelper.retrieveDistroProperties(distro, versionsHelper);
-            serverUpgrader.upgradeToDistro(server, distroProperties);
+            upgradeToDistro(serverUpgrader, server, distroProperties);
         } else if(platform != null) {
             deployOpenmrs(server, platform);
         } else if(owa != null){
@@ -128,6 +164,37 @@ public class Deploy extends AbstractTask {
         } else throw new MojoExecutionException("Invalid installation option");
     }
 
+    /**
+     * Upgrades server to distro or, in dry run mode, only reports planned changes as JSON
+     */
+    private void upgradeToDistro(ServerUpgrader serverUpgrader, Server server, DistroProperties distroProperties) throws MojoExecutionException, MojoFailureException {
+        if(dryRun){
+            UpgradePlan plan = serverUpgrader.planUpgradeToDistro(server, distroProperties);
+            String json = plan.toJson();
+            if(StringUtils.isNotBlank(planFile)){
+                try {
+                    FileUtils.writeStringToFile(new File(planFile), json, "UTF-8");
+                } catch (IOException e) {
+                    throw new MojoExecutionException("Failed to write upgrade plan to " + planFile, e);
+                }
+                wizard.showMessage("Upgrade plan written to " + planFile);
+            } else {
+                System.out.println(json);
+            }
+        } else {
+            serverUpgrader.upgradeToDistro(server, distroProperties);
+        }
+    }
+
+    /**
+     * Only distro upgrades can be planned, other deployments must not change the server in dry run mode
+     */
+    private void checkNotDryRun(String deployment) throws MojoExecutionException {
+        if (dryRun) {
+            throw new MojoExecutionException("Dry run is supported only for distro upgrades, not for " + deployment + " deployment");
+        }
+    }
+
     private void runInteractiveMode(Server server, ServerUpgrader upgrader) throws MojoExecutionException, MojoFailureException {
         DistroProperties distroProperties;
         List<String> options = new ArrayList<>(Arrays.asList(
@@ -157,7 +224,7 @@ public class Deploy extends AbstractTask {
                     distro = wizard.promptForDistroVersion(server.getDistroGroupId(), server.getDistroArtifactId(), server.getVersion(), server.getName(), versionsHelper);
                 }
                 distroProperties = distroHelper.retrieveDistroProperties(distro, versionsHelper);
-                upgrader.upgradeToDistro(server, distroProperties);
+                upgradeToDistro(upgrader, server, distroProperties);
                 break;
             }
             case(DEPLOY_PLATFORM_OPTION):{
@@ -182,6 +249,7 @@ public class Deploy extends AbstractTask {
     }
 
     private void deployOwa(Server server, String name, String version) throws MojoExecutionException {
+        checkNotDryRun("OWA");
         OpenmrsBintray bintray = new OpenmrsBintray(getProxyFromSettings());
         if(name == null){
             List<String> owas = new ArrayList<>();
@@ -233,6 +301,7 @@ public class Deploy extends AbstractTask {
                 owaDir = new File(path);
             }
         }
+        discardRollback(server);
         bintray.downloadAndExtractOWA(owaDir, name, version);
         server.saveUserOWA(new BintrayId(name, version));
         server.save();
@@ -263,6 +332,7 @@ public class Deploy extends AbstractTask {
     }
 
     public void deployOpenmrs(Server server, String version) throws MojoFailureException, MojoExecutionException {
+        checkNotDryRun("platform");
         Artifact artifact = new Artifact(SDKConstants.PLATFORM_ARTIFACT_ID, version, Artifact.GROUP_DISTRO);
         try {
             deployOpenmrsPlatform(server, artifact);
@@ -273,6 +343,7 @@ public class Deploy extends AbstractTask {
     }
     
     public void deployOpenmrsFromDir(Server server, Artifact artifact) throws MojoExecutionException, MojoFailureException {
+        checkNotDryRun(artifact.getArtifactId());
         String artifactId = artifact.getArtifactId();
         if(artifactId.equals("openmrs-webapp")){
             deployOpenmrsWar(server, artifact);
@@ -303,7 +374,9 @@ public class Deploy extends AbstractTask {
      * @throws MojoExecutionException
      */
     public void deployOpenmrsWar(Server server, Artifact artifact) throws MojoExecutionException {
+        checkNotDryRun("OpenMRS war");
         File openmrsCorePath = new File(server.getServerDirectory(), "openmrs-" + server.getPlatformVersion() + ".war");
+        discardRollback(server);
         openmrsCorePath.delete();
         server.deleteServerTmpDirectory();
 
@@ -326,6 +399,7 @@ public class Deploy extends AbstractTask {
      * @throws MojoExecutionException
      */
     public void deployModule(String groupId, String artifactId, String version, Server server) throws MojoExecutionException {
+        checkNotDryRun("module");
         List<Element> artifactItems = new ArrayList<Element>();
         Artifact artifact = getModuleArtifactForSelectedParameters(groupId, artifactId, version);
 
@@ -336,6 +410,7 @@ public class Deploy extends AbstractTask {
         boolean moduleRemoved = deleteModuleFromServer(artifact, modules, server);
 
         if (moduleRemoved) {
+            discardRollback(server);
             executeMojoPlugin(artifactItems);
 
             server.setModuleProperties(artifact);
@@ -345,6 +420,13 @@ public class Deploy extends AbstractTask {
         else getLog().info(String.format(DEFAULT_ABORT_MESSAGE, artifact.getArtifactId()));
     }
 
+    /**
+     * Called right before files of the server change, since the last distro upgrade cannot be rolled back afterwards
+     */
+    private void discardRollback(Server server) throws MojoExecutionException {
+        new ServerUpgrader(this).discardRollback(server);
+    }
+
     /**
      * Install modules form artifactItems
      * @param artifactItems
@@ -394,6 +476,7 @@ public class Deploy extends AbstractTask {
                     }
                 }
 
+                discardRollback(server);
                 server.removeModuleProperties(new Artifact(moduleId, oldVersion.toString(), artifact.getGroupId()));
                 server.saveAndSynchronizeDistro();
                 return itemModule.delete();
@@ -6,9 +6,6 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeCommand;
-import org.eclipse.jgit.api.PullCommand;
-import org.eclipse.jgit.api.PullResult;
-import org.eclipse.jgit.api.RebaseCommand;
 import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.StashApplyFailureException;
@@ -22,8 +19,16 @@ import org.openmrs.maven.plugins.utility.Project;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @goal pull
@@ -43,12 +48,14 @@ public class Pull extends AbstractTask {
     private static final String MERGING_PROBLEM_REASON = "problem with merging";
     private static final String DELETING_BRANCH_REASON = "problem wih deleting branch";
     private static final String PULL_COMMAND_PROBLEM_REASON = "problem with executing pull command";
+    private static final String FETCH_COMMAND_PROBLEM_REASON = "problem with fetching from upstream";
     private static final String CONFLICT_MESSAGE_REASON = "conflicts";
     private static final String UPSTREAM = "upstream";
     private static final String MASTER = "master";
     private static final String DASH = " - ";
     private static final String SDK_DASH = "sdk-";
     private static final String TEMP_BRANCH = "tempBranch";
+    private static final String MODULE_SUMMARY_TMPL = "%-40s %8.1fs";
 
     /**
      * @parameter expression="${serverId}"
@@ -60,13 +67,29 @@ public class Pull extends AbstractTask {
      */
     private String branch;
 
-    private List<String> updatedModules = new ArrayList<>();
+    /**
+     * number of watched projects pulled concurrently, 1 pulls one project at a time
+     *
+     * @parameter expression="${threads}" default-value="1"
+     */
+    private int threads;
 
-    private List<String> notUpdatedModules = new ArrayList<>();
+    private List<String> updatedModules = Collections.synchronizedList(new ArrayList<String>());
 
-    private String userBranch;
+    private List<String> notUpdatedModules = Collections.synchronizedList(new ArrayList<String>());
 
-    private RevCommit stash;
+    /**
+     * locks by git directory, so that projects sharing a repository are not pulled concurrently
+     */
+    private final Map<String, Object> repositoryLocks = new HashMap<>();
+
+    /**
+     * State of pulling a single repository, needed to revert changes if pulling fails
+     */
+    private static class PullState {
+        private String userBranch;
+        private RevCommit stash;
+    }
 
 
     public Pull() {}
@@ -78,6 +101,12 @@ public class Pull extends AbstractTask {
         this.branch = branch;
     }
 
+    public Pull(AbstractTask other, String serverId, String branch) {
+        super(other);
+        this.serverId = serverId;
+        this.branch = branch;
+    }
+
     @Override
     public void executeTask() throws MojoExecutionException, MojoFailureException {
 
@@ -102,8 +131,9 @@ public class Pull extends AbstractTask {
             branch = MASTER;
         }
         if(serverId == null){ serverId = TEMP_BRANCH; }
+        PullState state = new PullState();
         try {
-            pullLatestUpstream(path);
+            pullLatestUpstream(path, branch, state);
             wizard.showMessage(String.format(MODULE_UPDATED_SUCCESSFULLY_MESSAGE, project.getArtifactId()));
         } catch (Exception e) {
             String moduleName = project.getArtifactId();
@@ -112,7 +142,7 @@ public class Pull extends AbstractTask {
             allExceptions.add(path, e);
 
             try {
-                cleanUp(path, moduleName);
+                cleanUp(path, moduleName, state);
             } catch (Exception e1) {
                 allExceptions.add(path, e1);
             }
@@ -122,7 +152,8 @@ public class Pull extends AbstractTask {
     }
 
     /**
-     * Pull latest changes for all watched projects
+     * Pull latest changes for all watched projects. Fetching is network bound,
+     * so if threads is greater than 1 projects are pulled concurrently
      *
      * @throws MojoExecutionException
      */
@@ -132,26 +163,38 @@ public class Pull extends AbstractTask {
 
         if(server.hasWatchedProjects()){
             Set<Project> watchedProjects = server.getWatchedProjects();
-            CompositeException allExceptions = new CompositeException("Could not updated latest changes");
+            final CompositeException allExceptions = new CompositeException("Could not updated latest changes");
             for(Project project: watchedProjects) {
                 if(project.isOpenmrsCore()){
                     branch = wizard.promptForValueIfMissingWithDefault(ENTER_BRANCH_NAME_MESSAGE, branch, null, MASTER);
-                } else{
-                    branch = MASTER;
                 }
-                try {
-                    pullLatestUpstream(project.getPath());
-                    updatedModules.add(project.getArtifactId());
-                } catch (Exception e) {
-                    allExceptions.add(project.getPath(), e);
-                    notUpdatedModules.add(project.getArtifactId() + DASH + e.getMessage());
-                    try {
-                        cleanUp(project.getPath(), project.getArtifactId());
-                    } catch (IllegalStateException e1) {
-                        allExceptions.add(project.getPath(), e1);
-                    }
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, watchedProjects.size())));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (final Project project : watchedProjects) {
+                    futures.add(executor.submit(new Callable<Void>() {
+
+                        @Override
+                        public Void call() {
+                            pullWatchedProject(project, project.isOpenmrsCore() ? branch : MASTER, allExceptions);
+                            return null;
+                        }
+                    }));
                 }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while pulling watched projects", e);
+            } catch (ExecutionException e) {
+                throw new MojoExecutionException("Failed to pull watched projects", e.getCause());
+            } finally {
+                executor.shutdownNow();
             }
+
             displayUpdatedModules();
             displayNotUpdatedModules();
             allExceptions.checkAndThrow();
@@ -161,6 +204,27 @@ public class Pull extends AbstractTask {
         }
     }
 
+    private void pullWatchedProject(Project project, String projectBranch, CompositeException allExceptions) {
+        long start = System.currentTimeMillis();
+        PullState state = new PullState();
+        try {
+            pullLatestUpstream(project.getPath(), projectBranch, state);
+            updatedModules.add(formatModuleSummary(project, start));
+        } catch (Exception e) {
+            allExceptions.add(project.getPath(), e);
+            notUpdatedModules.add(formatModuleSummary(project, start) + DASH + e.getMessage());
+            try {
+                cleanUp(project.getPath(), project.getArtifactId(), state);
+            } catch (IllegalStateException e1) {
+                allExceptions.add(project.getPath(), e1);
+            }
+        }
+    }
+
+    private String formatModuleSummary(Project project, long start) {
+        return String.format(MODULE_SUMMARY_TMPL, project.getArtifactId(), (System.currentTimeMillis() - start) / 1000.0);
+    }
+
     /**
      * Check if the Git project exists
      *
@@ -175,12 +239,13 @@ public class Pull extends AbstractTask {
     }
 
     public void pullLatestUpstream(CompositeException allExceptions, Project project){
+        PullState state = new PullState();
         try {
-            pullLatestUpstream(project.getPath());
+            pullLatestUpstream(project.getPath(), branch, state);
         } catch (Exception e) {
             allExceptions.add(project.getPath(), e);
             try {
-                cleanUp(project.getPath(), project.getArtifactId());
+                cleanUp(project.getPath(), project.getArtifactId(), state);
             } catch (IllegalStateException e1) {
                 allExceptions.add(project.getPath(), e1);
             }
@@ -188,47 +253,64 @@ public class Pull extends AbstractTask {
     }
 
     /**
-     * Pull latest changes from upstream master
+     * Pull latest changes from upstream branch
      *
      * @param path
+     * @param upstreamBranch upstream branch or null to pull the upstream branch of the same name as the current one
+     * @param state
      * @throws Exception
      */
-    private void pullLatestUpstream(String path) throws Exception {
+    private void pullLatestUpstream(String path, String upstreamBranch, PullState state) throws Exception {
         wizard.showMessage("Pulling changes for " + path);
 
         String newBranch = SDK_DASH + serverId;
         Repository localRepo = gitHelper.getLocalRepository(path);
         Git git = new Git(localRepo);
-        
-        userBranch = localRepo.getBranch();
-        if(isTempBranchCreated(git)){
-            deleteTempBranch(git, newBranch);
-        }        
-        checkoutAndCreateNewBranch(git, newBranch);
-        String newBranchFull = localRepo.getFullBranch();
-        stash = git.stashCreate().call();
-        gitHelper.addRemoteUpstream(git, path);
-        pullFromRemoteUpstream(git, stash, newBranch, userBranch);
-        if (stash != null) {
-            try {
-                git.stashApply().setStashRef(stash.getName()).call();
-                checkoutBranch(git, userBranch);
-                mergeWithNewBranch(git, newBranchFull);
+
+        synchronized (getRepositoryLock(localRepo)) {
+            if (upstreamBranch == null) {
+                upstreamBranch = localRepo.getBranch();
+            }
+            gitHelper.addRemoteUpstream(git, path);
+            fetchFromRemoteUpstream(git, upstreamBranch);
+
+            state.userBranch = localRepo.getBranch();
+            if(isTempBranchCreated(git)){
                 deleteTempBranch(git, newBranch);
-            } catch (StashApplyFailureException e) {
-                git.reset().setMode(ResetCommand.ResetType.HARD).setRef(userBranch).call();
-                checkoutBranch(git, userBranch);
-                git.stashApply().setStashRef(stash.getName()).call();
+            }
+            checkoutAndCreateNewBranch(git, newBranch);
+            String newBranchFull = localRepo.getFullBranch();
+            state.stash = git.stashCreate().call();
+            rebaseOnRemoteUpstream(git, upstreamBranch, state.stash, newBranch, state.userBranch);
+            if (state.stash != null) {
+                try {
+                    git.stashApply().setStashRef(state.stash.getName()).call();
+                    checkoutBranch(git, state.userBranch);
+                    mergeWithNewBranch(git, newBranchFull);
+                    deleteTempBranch(git, newBranch);
+                } catch (StashApplyFailureException e) {
+                    git.reset().setMode(ResetCommand.ResetType.HARD).setRef(state.userBranch).call();
+                    checkoutBranch(git, state.userBranch);
+                    git.stashApply().setStashRef(state.stash.getName()).call();
+                    deleteTempBranch(git, newBranch);
+                    throw new Exception(CONFLICT_MESSAGE_REASON);
+                }
+            } else {
+                checkoutBranch(git, state.userBranch);
+                mergeWithNewBranch(git, newBranchFull);
                 deleteTempBranch(git, newBranch);
-                throw new Exception(CONFLICT_MESSAGE_REASON);
             }
-        } else {
-            checkoutBranch(git, userBranch);
-            mergeWithNewBranch(git, newBranchFull);
-            deleteTempBranch(git, newBranch);
         }
+    }
 
-
+    private synchronized Object getRepositoryLock(Repository localRepo) throws IOException {
+        String key = localRepo.getDirectory().getCanonicalPath();
+        Object lock = repositoryLocks.get(key);
+        if (lock == null) {
+            lock = new Object();
+            repositoryLocks.put(key, lock);
+        }
+        return lock;
     }
 
     /**
@@ -236,22 +318,29 @@ public class Pull extends AbstractTask {
      *
      * @param path
      * @param moduleName
+     * @param state
      * @throws IllegalStateException
      */
-    private void cleanUp(String path, String moduleName) throws IllegalStateException {
+    private void cleanUp(String path, String moduleName, PullState state) throws IllegalStateException {
         try {
             Repository localRepo = gitHelper.getLocalRepository(path);
             Git git = new Git(localRepo);
-            if(!localRepo.getBranch().equals(userBranch)){
-                checkoutBranch(git, userBranch);
-                if(stash != null){ git.stashApply().setStashRef(stash.getName()).call(); }
-                deleteTempBranch(git, SDK_DASH + serverId);
-            } else if(isTempBranchCreated(git)){
-                if(stash != null){ git.stashApply().setStashRef(stash.getName()).call(); }
-                deleteTempBranch(git, SDK_DASH + serverId);
+            synchronized (getRepositoryLock(localRepo)) {
+                if(state.userBranch == null){
+                    //failed before anything was changed
+                    return;
+                }
+                if(!localRepo.getBranch().equals(state.userBranch)){
+                    checkoutBranch(git, state.userBranch);
+                    if(state.stash != null){ git.stashApply().setStashRef(state.stash.getName()).call(); }
+                    deleteTempBranch(git, SDK_DASH + serverId);
+                } else if(isTempBranchCreated(git)){
+                    if(state.stash != null){ git.stashApply().setStashRef(state.stash.getName()).call(); }
+                    deleteTempBranch(git, SDK_DASH + serverId);
+                }
             }
         } catch (Exception e) {
-            throw new IllegalStateException(String.format(CLEAN_UP_ERROR_MESSAGE, userBranch, moduleName), e);
+            throw new IllegalStateException(String.format(CLEAN_UP_ERROR_MESSAGE, state.userBranch, moduleName), e);
         }
     }
 
@@ -290,46 +379,42 @@ public class Pull extends AbstractTask {
     }
 
     /**
-     * Pull from upstream
+     * Fetch branch from upstream, it is the only network bound step of pulling
      *
      * @param git
-     * @param stash
-     * @param newBranch
-     * @param previousBranch
+     * @param upstreamBranch
      * @throws Exception
      */
-    private void pullFromRemoteUpstream(Git git, RevCommit stash, String newBranch, String previousBranch) throws Exception {
+    private void fetchFromRemoteUpstream(Git git, String upstreamBranch) throws Exception {
         try {
-            PullCommand pull = git.pull()
-                .setRebase(true)
-                .setRemote(UPSTREAM)
-                .setRemoteBranchName(branch);
-
-            PullResult pullResult = pull.call();
-            if(!pullResult.isSuccessful()){
-                rebaseAbort(git);
-                checkoutBranch(git, previousBranch);
-                if (stash != null) { git.stashApply().setStashRef(stash.getName()).call(); }
-                deleteTempBranch(git, newBranch);
-                throw new Exception(CONFLICT_MESSAGE_REASON);
-            }
-        } catch (GitAPIException e) {
-            throw new Exception(PULL_COMMAND_PROBLEM_REASON, e);
+            gitHelper.fetch(git, UPSTREAM, "+refs/heads/" + upstreamBranch + ":refs/remotes/" + UPSTREAM + "/" + upstreamBranch);
+        } catch (MojoExecutionException e) {
+            throw new Exception(FETCH_COMMAND_PROBLEM_REASON, e);
         }
     }
 
     /**
-     * Abort rebasing if there are any conflicts
+     * Rebase on fetched upstream branch
+     *
      * @param git
-     * @throws GitAPIException
+     * @param upstreamBranch
+     * @param stash
+     * @param newBranch
+     * @param previousBranch
+     * @throws Exception
      */
-    private void rebaseAbort(Git git) throws Exception {
+    private void rebaseOnRemoteUpstream(Git git, String upstreamBranch, RevCommit stash, String newBranch, String previousBranch) throws Exception {
+        boolean rebased;
         try {
-            git.rebase()
-                    .setOperation(RebaseCommand.Operation.ABORT)
-                    .call();
-        } catch (GitAPIException e) {
-            throw new Exception(GIT_COMMAND_REASON, e);
+            rebased = gitHelper.rebase(git, "refs/remotes/" + UPSTREAM + "/" + upstreamBranch);
+        } catch (MojoExecutionException e) {
+            throw new Exception(PULL_COMMAND_PROBLEM_REASON, e);
+        }
+        if(!rebased){
+            checkoutBranch(git, previousBranch);
+            if (stash != null) { git.stashApply().setStashRef(stash.getName()).call(); }
+            deleteTempBranch(git, newBranch);
+            throw new Exception(CONFLICT_MESSAGE_REASON);
         }
     }
 
@@ -27,6 +27,12 @@ public class Reset extends AbstractTask {
      */
     private String serverId;
 
+    public Reset() {}
+
+    public Reset(AbstractTask other, String serverId) {
+        super(other);
+        this.serverId = serverId;
+    }
 
     public void executeTask() throws MojoExecutionException, MojoFailureException {
         if (serverId == null) {
@@ -36,11 +42,7 @@ public class Reset extends AbstractTask {
         serverId = wizard.promptForExistingServerIdIfMissing(serverId);
         Server server = loadValidatedServer(serverId);
         if(StringUtils.isNotBlank(server.getContainerId())){
-            new DockerHelper(mavenProject, mavenSession, pluginManager, wizard).runDbContainer(
-                    server.getContainerId(),
-                    server.getMySqlPort(),
-                    server.getDbUser(),
-                    server.getDbPassword());
+            new DockerHelper(mavenProject, mavenSession, pluginManager, wizard).runDbContainer(server, server.getMySqlPort());
         }
         if(server.getDbDriver().equals(SDKConstants.DRIVER_MYSQL)){
             DBConnector connector = null;
@@ -48,7 +50,7 @@ public class Reset extends AbstractTask {
                 String dbName = String.format(SDKConstants.DB_NAME_TEMPLATE, serverId);
                 String uri = server.getParam(Server.PROPERTY_DB_URI);
                 uri = uri.substring(0, uri.lastIndexOf("/"));
-                connector = new DBConnector(uri, server.getParam(Server.PROPERTY_DB_USER),
+                connector = new DBConnector(connectionPool, uri, server.getParam(Server.PROPERTY_DB_USER),
                         server.getParam(Server.PROPERTY_DB_PASS),
                         dbName);
                 connector.dropDatabase();
@@ -81,6 +83,7 @@ public class Reset extends AbstractTask {
             Setup setup = new Setup(this);
             DistroProperties distroProperties = server.getDistroProperties();
             FileUtils.deleteDirectory(server.getServerDirectory());
+            unloadServer(serverId);
             setup.setup(newServer, isPlatform, true, distroProperties);
             getLog().info(String.format(TEMPLATE_SUCCESS_FULL, newServer.getServerId()));
         } catch (IOException e) {
@@ -124,7 +124,7 @@ public class Run extends AbstractTask {
 		}
 
 		if (Boolean.FALSE.equals(fork)) {
-			new RunTomcat(serverId, port, mavenSession, mavenProject, pluginManager, wizard).execute();
+			new RunTomcat(server, port, mavenSession, mavenProject, pluginManager, wizard).execute();
 		} else {
 			runInFork(server);
 		}
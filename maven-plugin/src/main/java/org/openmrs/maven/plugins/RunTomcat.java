@@ -18,6 +18,7 @@ import org.codehaus.plexus.classworlds.realm.DuplicateRealmException;
 import org.openmrs.maven.plugins.model.Server;
 import org.openmrs.maven.plugins.model.Version;
 import org.openmrs.maven.plugins.utility.DockerHelper;
+import org.openmrs.maven.plugins.utility.EphemeralH2Database;
 import org.openmrs.maven.plugins.utility.Project;
 import org.openmrs.maven.plugins.utility.SDKConstants;
 import org.openmrs.maven.plugins.utility.Wizard;
@@ -79,11 +80,17 @@ public class RunTomcat extends AbstractMojo {
 	 */
 	private Wizard wizard;
 
+	/**
+	 * server already loaded by the calling goal, so that it is not read again
+	 */
+	private Server server;
+
 	public RunTomcat() {
 	}
 
-	public RunTomcat(String serverId, Integer port, MavenSession mavenSession, MavenProject mavenProject, BuildPluginManager pluginManager, Wizard wizard) {
-		this.serverId = serverId;
+	public RunTomcat(Server server, Integer port, MavenSession mavenSession, MavenProject mavenProject, BuildPluginManager pluginManager, Wizard wizard) {
+		this.server = server;
+		this.serverId = server.getServerId();
 		this.port = port;
 		this.wizard = wizard;
 		this.mavenProject = mavenProject;
@@ -98,7 +105,9 @@ public class RunTomcat extends AbstractMojo {
 
 		serverId = wizard.promptForExistingServerIdIfMissing(serverId);
 
-		Server server = Server.loadServer(serverId);
+		if (server == null || !server.getServerId().equals(serverId)) {
+			server = Server.loadServer(serverId);
+		}
 		String jdk = System.getProperty("java.version");
 
 		Version platformVersion = new Version(server.getPlatformVersion());
@@ -137,11 +146,7 @@ public class RunTomcat extends AbstractMojo {
 		}
 
 		if(StringUtils.isNotBlank(server.getContainerId())){
-			new DockerHelper(mavenProject, mavenSession, pluginManager, wizard).runDbContainer(
-					server.getContainerId(),
-					server.getDbUri(),
-					server.getDbUser(),
-					server.getDbPassword());
+			new DockerHelper(mavenProject, mavenSession, pluginManager, wizard).runDbContainer(server, server.getDbUri());
 		}
 
 		wizard.showMessage("Starting Tomcat...\n");
@@ -164,7 +169,14 @@ public class RunTomcat extends AbstractMojo {
 
 		setServerCustomProperties(server);
 
-		setSystemPropertiesForWatchedProjects(serverPath);
+		setSystemPropertiesForWatchedProjects(server);
+
+		EphemeralH2Database ephemeralDb = null;
+		if (EphemeralH2Database.isEphemeralUri(server.getDbUri())) {
+			ephemeralDb = new EphemeralH2Database(server.getDbSnapshotFile(), server.getDbUri(), server.getDbUser(),
+					server.getDbPassword(), wizard);
+			ephemeralDb.start();
+		}
 
 		ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
 		try {
@@ -178,6 +190,9 @@ public class RunTomcat extends AbstractMojo {
 			throw new MojoExecutionException("Tomcat failed to start", e);
 		} finally {
 			Thread.currentThread().setContextClassLoader(originalClassLoader);
+			if (ephemeralDb != null) {
+				ephemeralDb.stop();
+			}
 		}
 	}
 
@@ -199,9 +214,8 @@ public class RunTomcat extends AbstractMojo {
 		}
 	}
 
-	private void setSystemPropertiesForWatchedProjects(File serverPath) throws MojoExecutionException {
-		Server serverConfig = Server.loadServer(serverPath);
-		Set<Project> watchedProjects = serverConfig.getWatchedProjects();
+	private void setSystemPropertiesForWatchedProjects(Server server) {
+		Set<Project> watchedProjects = server.getWatchedProjects();
 		if (!watchedProjects.isEmpty()) {
 			if (isWatchApi()) {
 				wizard.showMessage("Hot redeployment of API classes and UI framework changes enabled for:");
@@ -7,16 +7,42 @@ import org.apache.maven.shared.utils.StringUtils;
 import org.openmrs.maven.plugins.model.*;
 import org.openmrs.maven.plugins.utility.DistroHelper;
 import org.openmrs.maven.plugins.utility.SDKConstants;
+import org.openmrs.maven.plugins.utility.UpgradePlanner;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.ZipFile;
 
 /**
  *
  */
 public class ServerUpgrader {
+	private static final String UPGRADE_STAGING_DIR = "upgrade-staging";
+	private static final String UPGRADE_ROLLBACK_DIR = "upgrade-rollback";
+	/**
+	 * Server properties right after the upgrade, the rollback set is stale once they change
+	 */
+	private static final String UPGRADED_PROPERTIES = "upgraded-" + SDKConstants.OPENMRS_SERVER_PROPERTIES;
+	private static final FilenameFilter WAR_FILTER = new FilenameFilter() {
+		@Override
+		public boolean accept(File dir, String name) {
+			return name.endsWith(".war");
+		}
+	};
+
     private AbstractTask parentTask;
 
 
@@ -33,6 +59,7 @@ public class ServerUpgrader {
     public void upgradePlatform(Server server, String version) throws MojoExecutionException, MojoFailureException {
         server.saveBackupProperties();
 		confirmUpgrade(server.getPlatformVersion(), version);
+		discardRollback(server);
 		replaceWebapp(server, version);
 	    server.deleteBackupProperties();
         parentTask.getLog().info(String.format("Server %s has been successfully upgraded to %s", server.getServerId(), version));
@@ -44,42 +71,39 @@ public class ServerUpgrader {
 		if(confirmed){
 			server.saveBackupProperties();
 
-			String modulesDir = server.getServerDirectory().getPath()+File.separator+SDKConstants.OPENMRS_SERVER_MODULES;
-			if(upgradeDifferential.getPlatformArtifact()!=null){
-				server.deleteServerTmpDirectory();
-				replaceWebapp(server, upgradeDifferential.getPlatformArtifact().getVersion());
-			}
-			if(!upgradeDifferential.getModulesToAdd().isEmpty()){
-				parentTask.moduleInstaller.installModules(upgradeDifferential.getModulesToAdd(), modulesDir);
+			File stagingDir = stageUpgrade(server, upgradeDifferential);
+			swapInStagedUpgrade(server, stagingDir, upgradeDifferential);
+			try {
+				if(upgradeDifferential.getPlatformArtifact()!=null){
+					server.deleteServerTmpDirectory();
+					server.setPlatformVersion(upgradeDifferential.getPlatformArtifact().getVersion());
+				}
 				for(Artifact artifact: upgradeDifferential.getModulesToAdd()){
 					server.setModuleProperties(artifact);
 				}
-			}
-			if(!upgradeDifferential.getModulesToDelete().isEmpty()){
 				for(Artifact artifact: upgradeDifferential.getModulesToDelete()){
-					File moduleToDelete = new File(modulesDir, artifact.getDestFileName());
-					moduleToDelete.delete();
 					server.removeModuleProperties(artifact);
 				}
-			}
-			if(!upgradeDifferential.getUpdateOldToNewMap().isEmpty()){
 				for(Map.Entry<Artifact, Artifact> updateEntry : upgradeDifferential.getUpdateOldToNewMap().entrySet()){
-					updateModule(server, modulesDir, updateEntry);
+					updateModuleProperties(server, updateEntry);
 				}
-			}
-			if(!upgradeDifferential.getDowngradeNewToOldMap().isEmpty()){
 				for(Map.Entry<Artifact, Artifact> downgradeEntry : upgradeDifferential.getDowngradeNewToOldMap().entrySet()){
-					updateModule(server, modulesDir, downgradeEntry);
+					updateModuleProperties(server, downgradeEntry);
 				}
-			}
 
-			server.setVersion(distroProperties.getVersion());
-			server.setName(distroProperties.getName());
-			server.getDistroPropertiesFile().delete();
-			distroProperties.saveTo(server.getServerDirectory());
-			server.deleteBackupProperties();
-			deleteDependencyPluginMarker();
-			server.saveAndSynchronizeDistro();
+				server.setVersion(distroProperties.getVersion());
+				server.setName(distroProperties.getName());
+				server.getDistroPropertiesFile().delete();
+				distroProperties.saveTo(server.getServerDirectory());
+				server.deleteBackupProperties();
+				deleteDependencyPluginMarker();
+				server.saveAndSynchronizeDistro();
+				stampRollback(server);
+			} catch (MojoExecutionException | RuntimeException e) {
+				parentTask.getLog().error("Server upgrade failed, restoring previous state");
+				restorePreviousState(server);
+				throw e;
+			}
 			parentTask.getLog().info("Server upgraded successfully");
 		} else {
 			parentTask.wizard.showMessage("Server upgrade aborted");
@@ -87,11 +111,263 @@ public class ServerUpgrader {
 
 	}
 
-	private void updateModule(Server server, String modulesDir, Map.Entry<Artifact, Artifact> updateEntry) throws MojoExecutionException {
-		File oldModule = new File(modulesDir, updateEntry.getKey().getDestFileName());
-		oldModule.delete();
+	/**
+	 * Computes upgrade of given server to distro without changing the server
+	 */
+	public UpgradePlan planUpgradeToDistro(Server server, DistroProperties distroProperties) throws MojoExecutionException {
+		UpgradeDifferential upgradeDifferential = DistroHelper.calculateUpdateDifferential(parentTask.distroHelper, server, distroProperties);
+		return new UpgradePlanner(parentTask.mavenProject, parentTask.moduleInstaller).plan(server, distroProperties, upgradeDifferential);
+	}
+
+	/**
+	 * Restores webapp, modules and properties of given server from the state kept by the last distro upgrade
+	 *
+	 * @throws MojoExecutionException if there is no upgrade to roll back, the server has changed since or restoring fails
+	 */
+	public void rollbackUpgrade(Server server) throws MojoExecutionException {
+		File rollbackDir = new File(server.getServerDirectory(), UPGRADE_ROLLBACK_DIR);
+		if(!rollbackDir.isDirectory()){
+			throw new MojoExecutionException("There is no upgrade to roll back for server " + server.getServerId());
+		}
+		if(isRollbackStale(server, rollbackDir)){
+			throw new MojoExecutionException("Server " + server.getServerId() + " has changed since the last upgrade, "
+					+ "it can no longer be rolled back");
+		}
+		restorePreviousState(server);
+	}
+
+	/**
+	 * Deletes the state kept by the last distro upgrade, since it cannot be restored after the server is changed again
+	 */
+	public void discardRollback(Server server) throws MojoExecutionException {
+		File rollbackDir = new File(server.getServerDirectory(), UPGRADE_ROLLBACK_DIR);
+		try {
+			FileUtils.deleteDirectory(rollbackDir);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Failed to delete " + rollbackDir, e);
+		}
+	}
+
+	/**
+	 * A rollback set without the stamp is left by an interrupted upgrade only if the backup properties still exist,
+	 * otherwise it was kept by an older SDK and its age is unknown
+	 */
+	private boolean isRollbackStale(Server server, File rollbackDir) throws MojoExecutionException {
+		File upgradedProperties = new File(rollbackDir, UPGRADED_PROPERTIES);
+		if(!upgradedProperties.isFile()){
+			return !server.getBackupPropertiesFile().isFile();
+		}
+		File serverProperties = new File(server.getServerDirectory(), SDKConstants.OPENMRS_SERVER_PROPERTIES);
+		return !loadProperties(upgradedProperties).equals(loadProperties(serverProperties));
+	}
+
+	private void stampRollback(Server server) throws MojoExecutionException {
+		File serverDir = server.getServerDirectory();
+		File upgradedProperties = new File(new File(serverDir, UPGRADE_ROLLBACK_DIR), UPGRADED_PROPERTIES);
+		try {
+			Files.copy(new File(serverDir, SDKConstants.OPENMRS_SERVER_PROPERTIES).toPath(), upgradedProperties.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Failed to save " + upgradedProperties, e);
+		}
+	}
+
+	private Properties loadProperties(File file) throws MojoExecutionException {
+		Properties properties = new Properties();
+		if(file.isFile()){
+			try (InputStream in = new FileInputStream(file)) {
+				properties.load(in);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Failed to read " + file, e);
+			}
+		}
+		return properties;
+	}
+
+	private void restorePreviousState(Server server) throws MojoExecutionException {
+		File serverDir = server.getServerDirectory();
+		File rollbackDir = new File(serverDir, UPGRADE_ROLLBACK_DIR);
+		try {
+			File modulesDir = new File(serverDir, SDKConstants.OPENMRS_SERVER_MODULES);
+			File previousModulesDir = new File(rollbackDir, SDKConstants.OPENMRS_SERVER_MODULES);
+			if(previousModulesDir.isDirectory()){
+				FileUtils.deleteDirectory(modulesDir);
+				moveAtomically(previousModulesDir, modulesDir);
+			}
+			File[] previousWebapps = rollbackDir.listFiles(WAR_FILTER);
+			if(previousWebapps != null && previousWebapps.length > 0){
+				File[] webapps = serverDir.listFiles(WAR_FILTER);
+				if(webapps != null){
+					for(File webapp : webapps){
+						Files.delete(webapp.toPath());
+					}
+				}
+				for(File previousWebapp : previousWebapps){
+					moveAtomically(previousWebapp, new File(serverDir, previousWebapp.getName()));
+				}
+				server.deleteServerTmpDirectory();
+			}
+			for(String propertiesFile : Arrays.asList(SDKConstants.OPENMRS_SERVER_PROPERTIES, DistroProperties.DISTRO_FILE_NAME)){
+				File previousProperties = new File(rollbackDir, propertiesFile);
+				if(previousProperties.exists()){
+					Files.copy(previousProperties.toPath(), new File(serverDir, propertiesFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			FileUtils.deleteDirectory(rollbackDir);
+			server.deleteBackupProperties();
+		} catch (IOException e) {
+			throw new MojoExecutionException("Failed to roll back upgrade of server " + server.getServerId(), e);
+		}
+		parentTask.getLog().info(String.format("Server %s has been restored to its state before upgrade", server.getServerId()));
+	}
+
+	/**
+	 * Prepares complete set of modules and webapp after upgrade in staging directory, without changing the server.
+	 * All new artifacts are copied from repository in a single execution of dependency plugin,
+	 * modules which stay unchanged are linked (or copied if links are not supported) from current modules directory
+	 *
+	 * @return staging directory with verified artifacts
+	 */
+	private File stageUpgrade(Server server, UpgradeDifferential upgradeDifferential) throws MojoExecutionException {
+		File serverDir = server.getServerDirectory();
+		File modulesDir = new File(serverDir, SDKConstants.OPENMRS_SERVER_MODULES);
+		File stagingDir = new File(serverDir, UPGRADE_STAGING_DIR);
+		File stagingModulesDir = new File(stagingDir, SDKConstants.OPENMRS_SERVER_MODULES);
+		try {
+			FileUtils.deleteDirectory(stagingDir);
+			stagingModulesDir.mkdirs();
+
+			Set<String> replacedModules = new HashSet<>();
+			for(Artifact artifact : upgradeDifferential.getModulesToDelete()){
+				replacedModules.add(artifact.getDestFileName());
+			}
+			for(Artifact artifact : upgradeDifferential.getUpdateOldToNewMap().keySet()){
+				replacedModules.add(artifact.getDestFileName());
+			}
+			for(Artifact artifact : upgradeDifferential.getDowngradeNewToOldMap().keySet()){
+				replacedModules.add(artifact.getDestFileName());
+			}
+			File[] currentModules = modulesDir.listFiles();
+			if(currentModules != null){
+				for(File module : currentModules){
+					if(module.isFile() && !replacedModules.contains(module.getName())){
+						linkOrCopy(module, new File(stagingModulesDir, module.getName()));
+					}
+				}
+			}
+
+			List<Artifact> newModules = new ArrayList<>(upgradeDifferential.getModulesToAdd());
+			newModules.addAll(upgradeDifferential.getUpdateOldToNewMap().values());
+			newModules.addAll(upgradeDifferential.getDowngradeNewToOldMap().values());
+			long installStart = System.currentTimeMillis();
+			long installedBytes = 0;
+			if(!newModules.isEmpty()){
+				parentTask.moduleInstaller.installModules(newModules, stagingModulesDir.getPath());
+			}
+			for(Artifact module : newModules){
+				installedBytes += verifyStagedArtifact(new File(stagingModulesDir, module.getDestFileName()));
+			}
+
+			if(upgradeDifferential.getPlatformArtifact() != null){
+				Artifact webappArtifact = new Artifact(SDKConstants.WEBAPP_ARTIFACT_ID, upgradeDifferential.getPlatformArtifact().getVersion(),
+						Artifact.GROUP_WEB, Artifact.TYPE_WAR);
+				parentTask.moduleInstaller.installModule(webappArtifact, stagingDir.getPath());
+				installedBytes += verifyStagedArtifact(new File(stagingDir, webappArtifact.getDestFileName()));
+			}
+			InstallStatistics.loadStatistics().recordInstallation(installedBytes, System.currentTimeMillis() - installStart);
+		} catch (IOException | MojoExecutionException e) {
+			FileUtils.deleteQuietly(stagingDir);
+			server.deleteBackupProperties();
+			throw new MojoExecutionException("Failed to prepare upgrade of server " + server.getServerId()
+					+ ", the server has not been changed: " + e.getMessage(), e);
+		}
+		return stagingDir;
+	}
+
+	/**
+	 * Replaces current modules directory and webapp with staged ones by renaming directories.
+	 * Previous modules, webapp and properties are moved to rollback directory
+	 */
+	private void swapInStagedUpgrade(Server server, File stagingDir, UpgradeDifferential upgradeDifferential) throws MojoExecutionException {
+		File serverDir = server.getServerDirectory();
+		File modulesDir = new File(serverDir, SDKConstants.OPENMRS_SERVER_MODULES);
+		File rollbackDir = new File(serverDir, UPGRADE_ROLLBACK_DIR);
+		try {
+			FileUtils.deleteDirectory(rollbackDir);
+			rollbackDir.mkdirs();
+			Files.copy(server.getBackupPropertiesFile().toPath(),
+					new File(rollbackDir, SDKConstants.OPENMRS_SERVER_PROPERTIES).toPath());
+			File distroPropertiesFile = server.getDistroPropertiesFile();
+			if(distroPropertiesFile.exists()){
+				Files.copy(distroPropertiesFile.toPath(), new File(rollbackDir, DistroProperties.DISTRO_FILE_NAME).toPath());
+			}
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(stagingDir);
+			server.deleteBackupProperties();
+			throw new MojoExecutionException("Failed to prepare rollback of server " + server.getServerId()
+					+ ", the server has not been changed: " + e.getMessage(), e);
+		}
+
+		try {
+			if(modulesDir.exists()){
+				moveAtomically(modulesDir, new File(rollbackDir, SDKConstants.OPENMRS_SERVER_MODULES));
+			}
+			moveAtomically(new File(stagingDir, SDKConstants.OPENMRS_SERVER_MODULES), modulesDir);
+			if(upgradeDifferential.getPlatformArtifact() != null){
+				File[] webapps = serverDir.listFiles(WAR_FILTER);
+				if(webapps != null){
+					for(File webapp : webapps){
+						moveAtomically(webapp, new File(rollbackDir, webapp.getName()));
+					}
+				}
+				for(File stagedWebapp : stagingDir.listFiles(WAR_FILTER)){
+					moveAtomically(stagedWebapp, new File(serverDir, stagedWebapp.getName()));
+				}
+			}
+			FileUtils.deleteQuietly(stagingDir);
+		} catch (IOException e) {
+			parentTask.getLog().error("Failed to swap in upgraded artifacts, restoring previous state");
+			restorePreviousState(server);
+			FileUtils.deleteQuietly(stagingDir);
+			throw new MojoExecutionException("Failed to upgrade server " + server.getServerId() + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return size of verified artifact
+	 */
+	private long verifyStagedArtifact(File file) throws MojoExecutionException {
+		if(!file.isFile() || file.length() == 0){
+			throw new MojoExecutionException("Artifact " + file.getName() + " has not been downloaded");
+		}
+		try (ZipFile zipFile = new ZipFile(file)) {
+			if(!zipFile.entries().hasMoreElements()){
+				throw new MojoExecutionException("Artifact " + file.getName() + " is empty");
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Artifact " + file.getName() + " is corrupted: " + e.getMessage(), e);
+		}
+		return file.length();
+	}
+
+	private void linkOrCopy(File source, File target) throws IOException {
+		try {
+			Files.createLink(target.toPath(), source.toPath());
+		} catch (IOException | UnsupportedOperationException e) {
+			Files.copy(source.toPath(), target.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+		}
+	}
+
+	private void moveAtomically(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath());
+		}
+	}
+
+	private void updateModuleProperties(Server server, Map.Entry<Artifact, Artifact> updateEntry) {
 		server.removeModuleProperties(updateEntry.getKey());
-		parentTask.moduleInstaller.installModule(updateEntry.getValue(), modulesDir);
 		server.setModuleProperties(updateEntry.getValue());
 	}
 
@@ -13,6 +13,7 @@ import org.openmrs.maven.plugins.model.Server;
 import org.openmrs.maven.plugins.model.Version;
 import org.openmrs.maven.plugins.utility.DBConnector;
 import org.openmrs.maven.plugins.utility.DistroHelper;
+import org.openmrs.maven.plugins.utility.DockerHelper;
 import org.openmrs.maven.plugins.utility.SDKConstants;
 import org.openmrs.maven.plugins.utility.ServerHelper;
 
@@ -21,12 +22,15 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @goal setup
@@ -43,6 +47,7 @@ public class Setup extends AbstractTask {
             "\nspecify the %s here (e.g. 1044). Leave blank to disable debugging. \n(Do not do this on a production server)";
     private static final String NO_DEBUGGING_DEFAULT_ANSWER = "no debugging";
     private static final int DEFAULT_PORT = 8080;
+    private static final String SNAPSHOT_DB_NAME = "openmrs";
 
     /**
      * Server id (folder name)
@@ -86,6 +91,36 @@ public class Setup extends AbstractTask {
      */
     private String dbSql;
 
+    /**
+     * MySQL or MariaDB image of the SDK DB container, e.g. mysql:5.7 or mariadb:10.1
+     *
+     * @parameter expression="${dbImage}"
+     */
+    private String dbImage;
+
+    /**
+     * Settings of the SDK DB container: default, dev-fast (relaxed durability) or prod-like
+     *
+     * @parameter expression="${dbProfile}"
+     */
+    private String dbProfile;
+
+    /**
+     * Start the server from a per-server SDK DB docker container created from a cached snapshot image
+     * of the initial database, instead of importing the database
+     *
+     * @parameter expression="${dbSnapshot}" default-value="false"
+     */
+    private boolean dbSnapshot;
+
+    /**
+     * Database for throwaway servers, e.g. in integration tests and CI: MySQL in the SDK docker container keeps
+     * data on tmpfs, which is lost when the container stops; H2 runs in memory and is saved to a file when the server stops
+     *
+     * @parameter expression="${dbEphemeral}" default-value="false"
+     */
+    private boolean dbEphemeral;
+
     /**
      * Docker host address
      *
@@ -142,6 +177,11 @@ public class Setup extends AbstractTask {
 
     private ServerHelper serverHelper;
 
+    /**
+     * SQL dumps extracted from the distro along with its properties, by name of the entry
+     */
+    private final Map<String, File> distroSqlFiles = new HashMap<>();
+
     public Setup() {
         super();
     }
@@ -195,7 +235,14 @@ public class Setup extends AbstractTask {
 
             configureVersion(server, distroProperties);
 
-            if(server.getDbDriver() == null) {
+            if (dbSnapshot && dbEphemeral) {
+                throw new MojoExecutionException("-DdbSnapshot and -DdbEphemeral cannot be used together");
+            }
+            if (dbSnapshot) {
+                setupDbFromSnapshot(server);
+                //the snapshot already contains the initial database
+                dbReset = false;
+            } else if(server.getDbDriver() == null) {
                 boolean h2supported = true;
                 if(distroProperties != null) {
                     h2supported = distroProperties.isH2Supported();
@@ -274,6 +321,11 @@ public class Setup extends AbstractTask {
         } catch (Exception e) {
             FileUtils.deleteQuietly(serverPath);
             throw new MojoExecutionException("Failed to setup server", e);
+        } finally {
+            for (File sqlFile : distroSqlFiles.values()) {
+                FileUtils.deleteQuietly(sqlFile);
+            }
+            distroSqlFiles.clear();
         }
     }
 
@@ -282,7 +334,7 @@ public class Setup extends AbstractTask {
         uri = uri.substring(0, uri.lastIndexOf("/"));
         DBConnector connector = null;
         try {
-            connector = new DBConnector(uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
+            connector = new DBConnector(connectionPool, uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
             connector.dropDatabase();
             connectMySqlDatabase(server);
             wizard.showMessage("Database " + server.getDbName() + " has been wiped.");
@@ -346,6 +398,13 @@ public class Setup extends AbstractTask {
         DistroProperties distroProperties;
         if(DistroHelper.isRefapp2_3_1orLower(server.getDistroArtifactId(), server.getVersion())){
             distroProperties = new DistroProperties(server.getVersion());
+        } else if (isDistroScript(dbSql)) {
+            //the dump is extracted along with the properties, so that the distro is read once
+            Artifact distroArtifact = new Artifact(server.getDistroArtifactId(), server.getVersion(), server.getDistroGroupId(), "jar");
+            distroSqlFiles.putAll(distroHelper.extractFilesFromDistro(serverPath, distroArtifact, dbSql));
+            File distroFile = distroSqlFiles.remove(DistroProperties.DISTRO_FILE_NAME);
+            distroProperties = distroFile != null ? new DistroProperties(distroFile) : null;
+            FileUtils.deleteQuietly(distroFile);
         } else {
             distroProperties = distroHelper.downloadDistroProperties(serverPath, server);
         }
@@ -353,6 +412,14 @@ public class Setup extends AbstractTask {
         return distroProperties;
     }
 
+    /**
+     * @return true if the script is not in the SDK, so it can only be extracted from the distro
+     */
+    private boolean isDistroScript(String sqlScriptPath) {
+        return sqlScriptPath != null && sqlScriptPath.startsWith(Server.CLASSPATH_SCRIPT_PREFIX)
+                && Setup.class.getClassLoader().getResource(sqlScriptPath.replace(Server.CLASSPATH_SCRIPT_PREFIX, "")) == null;
+    }
+
     private void configureVersion(Server server, DistroProperties distroProperties) throws MojoExecutionException {
         if (distroProperties != null) {
             if(server.getPlatformVersion() == null){
@@ -364,6 +431,63 @@ public class Setup extends AbstractTask {
         }
     }
 
+    /**
+     * Creates a docker container for the server from a snapshot image of the initial database, which is built once
+     * for each dump, so the database does not need to be imported for each server
+     */
+    private void setupDbFromSnapshot(Server server) throws MojoExecutionException {
+        String sqlScriptPath = getInitialDbScript(server);
+        if (sqlScriptPath == null) {
+            throw new MojoExecutionException("There is no initial database for platform " + server.getPlatformVersion()
+                    + ", please specify -DdbSql to use a DB snapshot");
+        }
+        if (StringUtils.isNotBlank(dockerHost)) {
+            dockerHelper.saveDockerHost(dockerHost);
+        }
+
+        File snapshotScript = new File(server.getServerTmpDirectory(), "snapshot.sql");
+        InputStream sqlStream = openSqlScript(server, sqlScriptPath);
+        try {
+            FileUtils.copyInputStreamToFile(sqlStream, snapshotScript);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to extract " + sqlScriptPath, e);
+        } finally {
+            IOUtils.closeQuietly(sqlStream);
+        }
+
+        String image = StringUtils.defaultIfBlank(server.getDbImage(), DockerHelper.DOCKER_DEFAULT_DB_IMAGE);
+        String profile = StringUtils.defaultIfBlank(server.getDbProfile(), DockerHelper.DOCKER_DEFAULT_DB_PROFILE);
+        String container = "openmrs-sdk-mysql-" + server.getServerId();
+        String port = dockerHelper.getSdkMySqlPort(container);
+        try {
+            dockerHelper.createMySqlContainer(container, port, image, profile, snapshotScript, false);
+        } finally {
+            FileUtils.deleteQuietly(snapshotScript);
+        }
+
+        server.setDbDriver(SDKConstants.DRIVER_MYSQL);
+        server.setDbUri(wizard.addMySQLParamsIfMissing(dockerHelper.getDockerDbUri(port).replace("@DBNAME@", SNAPSHOT_DB_NAME)));
+        server.setDbUser(DockerHelper.DOCKER_MYSQL_USERNAME);
+        server.setDbPassword(DockerHelper.DOCKER_MYSQL_PASSWORD);
+        server.setContainerId(container);
+        server.setDbImage(image);
+        server.setDbProfile(profile);
+        dockerHelper.runDbContainer(server, server.getDbUri());
+    }
+
+    /**
+     * @return path of the script from -DdbSql or the platform script, null if there is none
+     */
+    private String getInitialDbScript(Server server) {
+        if (dbSql != null) {
+            return "null".equals(dbSql) ? null : dbSql;
+        }
+        if (server.getPlatformVersion() != null && new Version(server.getPlatformVersion()).higher(new Version("1.9.7"))) {
+            return Server.CLASSPATH_SCRIPT_PREFIX + "openmrs-platform.sql";
+        }
+        return null;
+    }
+
     private boolean connectMySqlDatabase(Server server) throws MojoExecutionException {
 	    String uri = server.getDbUri();
         uri = uri.substring(0, uri.lastIndexOf("/"));
@@ -375,7 +499,7 @@ public class Setup extends AbstractTask {
             } catch (ClassNotFoundException e) {
                 throw new RuntimeException("Failed to load MySQL driver");
             }
-            connector = new DBConnector(uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
+            connector = new DBConnector(connectionPool, uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
             connector.checkAndCreate();
             connector.close();
             wizard.showMessage("Connected to the database.");
@@ -399,7 +523,7 @@ public class Setup extends AbstractTask {
         DBConnector connector = null;
         ResultSet rs = null;
         try {
-            connector = new DBConnector(uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
+            connector = new DBConnector(connectionPool, uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
             DatabaseMetaData md = connector.getConnection().getMetaData();
 
             rs = md.getTables(server.getDbName(), null, null,new String[] {"TABLE"});
@@ -438,7 +562,7 @@ public class Setup extends AbstractTask {
         DBConnector connector = null;
         PreparedStatement ps = null;
         try {
-            connector = new DBConnector(uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
+            connector = new DBConnector(connectionPool, uri, server.getDbUser(), server.getDbPassword(), server.getDbName());
             ps = connector.getConnection().prepareStatement(String.format(SDKConstants.RESET_SEARCH_INDEX_SQL, server.getDbName()));
             ps.execute();
 
@@ -470,34 +594,10 @@ public class Setup extends AbstractTask {
         wizard.showMessage("Importing an initial database from " + sqlScriptPath + "...");
         String uri = server.getDbUri().replace("@DBNAME@", server.getDbName());
 
-        File extractedSqlFile = null;
-        InputStream sqlStream;
-        Reader sqlReader;
-        if(sqlScriptPath.startsWith(Server.CLASSPATH_SCRIPT_PREFIX)){
-            String sqlScript = sqlScriptPath.replace(Server.CLASSPATH_SCRIPT_PREFIX, "");
-            sqlStream = (Setup.class.getClassLoader().getResourceAsStream(sqlScript));
-            if(sqlStream == null){
-                Artifact distroArtifact = new Artifact(server.getDistroArtifactId(), server.getVersion(), server.getDistroGroupId(), "jar");
-                extractedSqlFile =  distroHelper.extractFileFromDistro(server.getServerDirectory(), distroArtifact, sqlScript);
-                try {
-                    sqlStream = new FileInputStream(extractedSqlFile);
-                } catch (FileNotFoundException e) {
-                    throw new MojoExecutionException("Error during opening sql dump script file", e);
-                }
-            }
-        } else {
-            File scriptFile = new File(sqlScriptPath);
-            try {
-                sqlStream = new FileInputStream(scriptFile);
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException("Invalid path to SQL import script", e);
-            }
-        }
-
-        sqlReader = new InputStreamReader(sqlStream);
+        Reader sqlReader = new InputStreamReader(openSqlScript(server, sqlScriptPath));
         Connection connection = null;
         try {
-            connection = DriverManager.getConnection(uri, server.getDbUser(), server.getDbPassword());
+            connection = connectionPool.getConnection(uri, server.getDbUser(), server.getDbPassword());
             ScriptRunner scriptRunner = new ScriptRunner(connection);
             //we don't want to display ~5000 lines of queries to user if there is no error
             scriptRunner.setLogWriter(new PrintWriter(new NullOutputStream()));
@@ -521,10 +621,43 @@ public class Setup extends AbstractTask {
             } catch (SQLException e1) {
                 //close quietly
             }
+        }
+    }
 
-            //this file is extracted from distribution, clean it up
-            if(extractedSqlFile != null && extractedSqlFile.exists()){
-                extractedSqlFile.delete();
+    /**
+     * Opens a script from a file, classpath or distribution. A script extracted from distribution is deleted when closed.
+     */
+    private InputStream openSqlScript(Server server, String sqlScriptPath) throws MojoExecutionException {
+        if(sqlScriptPath.startsWith(Server.CLASSPATH_SCRIPT_PREFIX)){
+            String sqlScript = sqlScriptPath.replace(Server.CLASSPATH_SCRIPT_PREFIX, "");
+            InputStream sqlStream = (Setup.class.getClassLoader().getResourceAsStream(sqlScript));
+            if(sqlStream == null){
+                File sqlFile = distroSqlFiles.remove(sqlScript);
+                if(sqlFile == null){
+                    Artifact distroArtifact = new Artifact(server.getDistroArtifactId(), server.getVersion(), server.getDistroGroupId(), "jar");
+                    sqlFile = distroHelper.extractFileFromDistro(server.getServerDirectory(), distroArtifact, sqlScript);
+                }
+                final File extractedSqlFile = sqlFile;
+                try {
+                    sqlStream = new FileInputStream(extractedSqlFile) {
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            //this file is extracted from distribution, clean it up
+                            extractedSqlFile.delete();
+                        }
+                    };
+                } catch (FileNotFoundException e) {
+                    throw new MojoExecutionException("Error during opening sql dump script file", e);
+                }
+            }
+            return sqlStream;
+        } else {
+            File scriptFile = new File(sqlScriptPath);
+            try {
+                return new FileInputStream(scriptFile);
+            } catch (FileNotFoundException e) {
+                throw new RuntimeException("Invalid path to SQL import script", e);
             }
         }
     }
@@ -574,6 +707,9 @@ public class Setup extends AbstractTask {
                 .setDbUri(dbUri)
                 .setDbUser(dbUser)
                 .setDbPassword(dbPassword)
+                .setDbImage(dbImage)
+                .setDbProfile(dbProfile)
+                .setDbEphemeral(dbEphemeral)
                 .setInteractiveMode(testMode)
                 .setJavaHome(javaHome)
                 .setDebugPort(debug)
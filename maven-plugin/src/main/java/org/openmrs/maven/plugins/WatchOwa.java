@@ -1,9 +1,14 @@
 package org.openmrs.maven.plugins;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.openmrs.maven.plugins.model.PackageJson;
+import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.utility.OwaBuildCache;
 import org.openmrs.maven.plugins.utility.OwaHelper;
+import org.openmrs.maven.plugins.utility.OwaSync;
 
 import java.io.File;
 import java.io.IOException;
@@ -24,6 +29,20 @@ public class WatchOwa extends AbstractTask {
      */
     private String serverId;
 
+    /**
+     * Name of the OWA directory on the server, defaults to the name in package.json
+     *
+     * @parameter expression="${owaName}"
+     */
+    private String owaName;
+
+    /**
+     * Whether the SDK pushes the webpack output to the server
+     *
+     * @parameter expression="${syncOwa}" default-value="true"
+     */
+    private boolean syncOwa;
+
     private final String CONFIG_FILENAME = "webpack.config.js";
 
     @Override
@@ -32,27 +51,55 @@ public class WatchOwa extends AbstractTask {
         File configFile = new File(CONFIG_FILENAME);
         if (configFile.exists()) {
             serverId = wizard.promptForExistingServerIdIfMissing(serverId);
-            String port = getChosenServerPort();
+            Server server = loadValidatedServer(serverId);
+            String port = getChosenServerPort(server);
             List<String> args = new ArrayList<>();
             args.add("run");
             args.add("watch");
             if (port != null) {
                 args.add("-- --targetPort=" + port);
             }
-            String projectNodeVersion = owaHelper.getProjectNodeVersion();
-            if (projectNodeVersion != null) {
-                owaHelper.runLocalNpmCommandWithArgs(args);
-            } else {
-                owaHelper.runSystemNpmCommandWithArgs(args);
+            OwaSync owaSync = null;
+            if (syncOwa) {
+                File targetDir = new File(new File(server.getServerDirectory(), Server.OWA_DIRECTORY), getOwaName(owaHelper));
+                wizard.showMessage("Pushing changes in " + OwaBuildCache.OUTPUT_DIR + " to " + targetDir);
+                owaSync = new OwaSync(new File(OwaBuildCache.OUTPUT_DIR).getAbsoluteFile(), targetDir, wizard, OwaSync.DEFAULT_POLL_INTERVAL);
+                owaSync.start();
+            }
+            try {
+                String projectNodeVersion = owaHelper.getProjectNodeVersion();
+                if (projectNodeVersion != null) {
+                    owaHelper.runLocalNpmCommandWithArgs(args);
+                } else if (owaHelper.resolveNodeAndNpm(null, null, null)) {
+                    owaHelper.runSystemNpmCommandWithArgs(args);
+                } else {
+                    //node from the shared toolchains store
+                    owaHelper.runLocalNpmCommandWithArgs(args);
+                }
+            } finally {
+                if (owaSync != null) {
+                    owaSync.close();
+                }
             }
         } else {
             throw new IllegalStateException("Config file not found at" + new File(CONFIG_FILENAME).getAbsolutePath());
         }
     }
 
-    private String getChosenServerPort() throws MojoExecutionException {
+    private String getOwaName(OwaHelper owaHelper) {
+        if (StringUtils.isNotBlank(owaName)) {
+            return owaName;
+        }
+        PackageJson packageJson = owaHelper.getPackageJson(OwaHelper.PACKAGE_JSON_FILENAME);
+        if (packageJson != null && StringUtils.isNotBlank(packageJson.getName())) {
+            return packageJson.getName();
+        }
+        return new File(System.getProperty("user.dir")).getName();
+    }
+
+    private String getChosenServerPort(Server server) {
         final String defaultTomcatPort = "8080";
-        Map<String,String> port = loadValidatedServer(serverId).getServerProperty("tomcat.port");
+        Map<String,String> port = server.getServerProperty("tomcat.port");
         if (port == null) {
             return defaultTomcatPort;
         }
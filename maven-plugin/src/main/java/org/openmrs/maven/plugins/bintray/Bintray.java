@@ -23,8 +23,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
 import java.util.List;
 
 public class Bintray {
@@ -171,16 +172,9 @@ public class Bintray {
             if(destFile.exists()){
                 destFile.delete();
             }
-            String url = String.format("https://dl.bintray.com/%s/%s/%s", file.getOwner(), file.getRepository(), file.getPath());
-            URL fileUrl = new URL(url);
-            log.info("Downloading " + url);
-
-	    GetMethod get = new GetMethod(url);
-            newHttpClient().executeMethod(get);
-            if (get.getStatusLine() == null || get.getStatusCode() != 200) {
-                throw new IOException(url +": "+get.getStatusLine().toString());
+            try (InputStream in = openFile(file)) {
+                FileUtils.copyInputStreamToFile(in, destFile);
             }
-            FileUtils.copyInputStreamToFile(get.getResponseBodyAsStream(), destFile);
 
             return destFile;
         } catch (IOException e) {
@@ -188,6 +182,36 @@ public class Bintray {
         }
     }
 
+    /**
+     * Opens the file for streaming without saving it, closing the stream releases the connection
+     */
+    public InputStream openFile(BintrayFile file) throws IOException {
+        String url = String.format("https://dl.bintray.com/%s/%s/%s", file.getOwner(), file.getRepository(), file.getPath());
+        log.info("Downloading " + url);
+
+        final GetMethod get = new GetMethod(url);
+        try {
+            newHttpClient().executeMethod(get);
+            if (get.getStatusLine() == null || get.getStatusCode() != 200) {
+                throw new IOException(url + ": " + get.getStatusLine());
+            }
+            return new FilterInputStream(get.getResponseBodyAsStream()) {
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        get.releaseConnection();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            get.releaseConnection();
+            throw e;
+        }
+    }
+
     public void downloadPackage(File destDirectory, BintrayPackage bintrayPackage){
         downloadPackage(
                 destDirectory,
@@ -2,9 +2,6 @@ package org.openmrs.maven.plugins.bintray;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.FileHeader;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
@@ -12,9 +9,12 @@ import org.apache.maven.settings.Proxy;
 import org.openmrs.maven.plugins.model.PackageJson;
 import org.openmrs.maven.plugins.model.Version;
 import org.openmrs.maven.plugins.utility.DefaultJira;
+import org.openmrs.maven.plugins.utility.StreamingZipExtractor;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.util.Arrays;
@@ -53,7 +53,15 @@ public class OpenmrsBintray extends Bintray{
         }
         List<BintrayFile> bintrayFiles = getPackageFiles(OPENMRS_USERNAME, BINTRAY_OWA_REPO, name, version);
 
-        String filename = bintrayFiles.get(0).getName();
+        String filename = getOwaFileName(bintrayFiles.get(0), version);
+
+        File file = downloadFile(bintrayFiles.get(0), destination, filename);
+
+        return file;
+    }
+
+    private String getOwaFileName(BintrayFile bintrayFile, String version) {
+        String filename = bintrayFile.getName();
         int versionPart = filename.lastIndexOf("-" + version);
         if (versionPart > 0) {
             filename = filename.substring(0, versionPart);
@@ -62,16 +70,29 @@ public class OpenmrsBintray extends Bintray{
             filename = filename.substring(0, filename.length() - ".zip".length());
             filename = filename + OWA_PACKAGE_EXTENSION;
         }
-
-        File file = downloadFile(bintrayFiles.get(0), destination, filename);
-
-        return file;
+        return filename;
     }
 
+    /**
+     * Extracts the OWA while it is being downloaded, so that the archive is never saved to disk
+     */
     public void downloadAndExtractOWA(File destination, String name, String version) {
-        File downloadedFile = downloadOWA(destination, name, version);
-        extractOwa(downloadedFile);
-        downloadedFile.delete();
+        if(!destination.exists()){
+            destination.mkdir();
+        }
+        List<BintrayFile> bintrayFiles = getPackageFiles(OPENMRS_USERNAME, BINTRAY_OWA_REPO, name, version);
+
+        String owaName = getOwaFileName(bintrayFiles.get(0), version);
+        if (owaName.endsWith(OWA_PACKAGE_EXTENSION)) {
+            owaName = owaName.substring(0, owaName.length() - OWA_PACKAGE_EXTENSION.length());
+        }
+        File outputDir = new File(destination, owaName);
+
+        try (InputStream in = openFile(bintrayFiles.get(0))) {
+            new StreamingZipExtractor().extract(in, outputDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to extract " + name + " to " + outputDir, e);
+        }
     }
 
     public static BintrayId parseOwa(String input){
@@ -86,14 +107,12 @@ public class OpenmrsBintray extends Bintray{
     }
 
     public void extractOwa(File owaZip){
-        try {
-            ZipFile zipFile = new ZipFile(owaZip);
-            String owaName = owaZip.getName();
-            owaName = owaName.substring(0, owaName.length() - OWA_PACKAGE_EXTENSION.length());
-            File outputDir = new File(owaZip.getParentFile(), owaName);
-            outputDir.mkdirs();
-            zipFile.extractAll(outputDir.getPath());
-        } catch (ZipException e) {
+        String owaName = owaZip.getName();
+        owaName = owaName.substring(0, owaName.length() - OWA_PACKAGE_EXTENSION.length());
+        File outputDir = new File(owaZip.getParentFile(), owaName);
+        try (InputStream in = new FileInputStream(owaZip)) {
+            new StreamingZipExtractor().extract(in, outputDir);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -9,8 +9,10 @@ import org.eclipse.egit.github.core.PullRequest;
 import org.eclipse.egit.github.core.PullRequestMarker;
 import org.eclipse.egit.github.core.service.PullRequestService;
 import org.eclipse.egit.github.core.service.RepositoryService;
+import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.RebaseCommand;
+import org.eclipse.jgit.api.RebaseResult;
 import org.eclipse.jgit.api.RemoteAddCommand;
 import org.eclipse.jgit.api.RemoteListCommand;
 import org.eclipse.jgit.api.RemoteRemoveCommand;
@@ -23,11 +25,13 @@ import org.eclipse.jgit.errors.IllegalTodoFileModification;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.RebaseTodoLine;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteConfig;
 import org.eclipse.jgit.transport.RemoteRefUpdate;
 import org.eclipse.jgit.transport.URIish;
@@ -36,18 +40,24 @@ import org.openmrs.maven.plugins.AbstractTask;
 import org.openmrs.maven.plugins.Pull;
 import org.openmrs.maven.plugins.utility.CompositeException;
 import org.openmrs.maven.plugins.utility.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.openmrs.maven.plugins.Clone.GITHUB_COM;
 
 public class DefaultGitHelper implements GitHelper {
 
+    private final Logger log = LoggerFactory.getLogger(DefaultGitHelper.class);
+
     private static final String CREATING_LOCAL_REPO_REASON = "problem when initializing local repository";
     private final static String OPENMRS_USER = "openmrs";
     private static final String CREATING_REMOTE_UPSTREAM_REASON = "problem with creating remote upstream";
@@ -70,6 +80,97 @@ public class DefaultGitHelper implements GitHelper {
         }
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void cloneRepository(String uri, File directory, String branch, boolean singleBranch, Integer depth) throws MojoExecutionException {
+        if (depth != null && depth > 0) {
+            //JGit does not support shallow clones, so they are made with git executable if it is installed
+            if (cloneWithGitExecutable(uri, directory, branch, singleBranch, depth)) {
+                return;
+            }
+            log.info("Git executable not found, cloning whole history of " + uri);
+        }
+
+        CloneCommand clone = Git.cloneRepository()
+                .setURI(uri)
+                .setDirectory(directory);
+        if (branch != null) {
+            clone.setBranch(Constants.R_HEADS + branch);
+        }
+        if (singleBranch) {
+            clone.setCloneAllBranches(false)
+                    .setBranchesToClone(Collections.singletonList(Constants.R_HEADS + (branch != null ? branch : Constants.MASTER)));
+        }
+        try {
+            clone.call().close();
+        } catch (GitAPIException e) {
+            throw new MojoExecutionException("Failed to clone " + uri, e);
+        }
+    }
+
+    /**
+     * @return false if git executable is not installed
+     */
+    boolean cloneWithGitExecutable(String uri, File directory, String branch, boolean singleBranch, Integer depth) throws MojoExecutionException {
+        if (!GitExecutable.isAvailable()) {
+            return false;
+        }
+        List<String> args = new ArrayList<>(Arrays.asList("clone"));
+        if (depth != null && depth > 0) {
+            args.add("--depth");
+            args.add(String.valueOf(depth));
+        }
+        args.add(singleBranch ? "--single-branch" : "--no-single-branch");
+        if (branch != null) {
+            args.add("--branch");
+            args.add(branch);
+        }
+        args.add(uri);
+        args.add(directory.getAbsolutePath());
+
+        int exitCode = GitExecutable.run(null, Collections.<String, String>emptyMap(), args);
+        if (exitCode != 0) {
+            throw new MojoExecutionException("Failed to clone " + uri + ", git exited with code " + exitCode);
+        }
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void fetch(Git git, String remote, String refSpec) throws MojoExecutionException {
+        try {
+            git.fetch()
+                    .setRemote(remote)
+                    .setRefSpecs(new RefSpec(refSpec))
+                    .call();
+        } catch (GitAPIException e) {
+            throw new MojoExecutionException("Failed to fetch " + refSpec + " from " + remote, e);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean rebase(Git git, String upstream) throws MojoExecutionException {
+        try {
+            RebaseResult result = git.rebase().setUpstream(upstream).call();
+            if (!result.getStatus().isSuccessful()) {
+                if (git.getRepository().getRepositoryState().isRebasing()) {
+                    git.rebase().setOperation(RebaseCommand.Operation.ABORT).call();
+                }
+                return false;
+            }
+            return true;
+        } catch (GitAPIException e) {
+            throw new MojoExecutionException("Failed to rebase on " + upstream, e);
+        }
+    }
+
     /**
      * @inheritDoc
      */
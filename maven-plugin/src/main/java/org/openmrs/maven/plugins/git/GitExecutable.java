@@ -0,0 +1,84 @@
+package org.openmrs.maven.plugins.git;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs commands of git executable installed in the system
+ */
+class GitExecutable {
+
+    private static final String GIT = "git";
+
+    private static Boolean available;
+
+    private GitExecutable() {}
+
+    /**
+     * @return true if git executable is on the path, checked once
+     */
+    static synchronized boolean isAvailable() {
+        if (available == null) {
+            try {
+                Process process = new ProcessBuilder(GIT, "--version").redirectErrorStream(true).start();
+                IOUtils.toString(process.getInputStream());
+                available = process.waitFor() == 0;
+            } catch (IOException e) {
+                available = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                available = false;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Runs git with given arguments in given directory, output is shown to the user
+     *
+     * @return exit code of git
+     */
+    static int run(File directory, String... args) throws MojoExecutionException {
+        return run(directory, Collections.<String, String>emptyMap(), Arrays.asList(args));
+    }
+
+    /**
+     * Runs git with given arguments and additional environment variables in given directory, output is shown to the user
+     *
+     * @param directory working directory, current directory if null
+     * @return exit code of git
+     */
+    static int run(File directory, Map<String, String> environment, List<String> args) throws MojoExecutionException {
+        List<String> command = new ArrayList<>();
+        command.add(GIT);
+        command.addAll(args);
+        ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+        if (directory != null) {
+            builder.directory(directory);
+        }
+        builder.environment().putAll(environment);
+
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to run git " + StringUtils.join(args, " "), e);
+        }
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while running git " + StringUtils.join(args, " "), e);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.eclipse.jgit.transport.PushResult;
 import org.openmrs.maven.plugins.AbstractTask;
 import org.openmrs.maven.plugins.utility.Project;
 
+import java.io.File;
 import java.util.List;
 
 public interface GitHelper {
@@ -18,6 +19,28 @@ public interface GitHelper {
      */
     Repository getLocalRepository(String path);
 
+    /**
+     * Clones repository, optionally only a single branch and its last commits
+     *
+     * @param uri remote repository
+     * @param directory destination directory, which must not exist
+     * @param branch branch to check out, default branch of remote repository if null
+     * @param singleBranch if true, only the checked out branch is fetched
+     * @param depth number of last commits to fetch, whole history if null
+     */
+    void cloneRepository(String uri, File directory, String branch, boolean singleBranch, Integer depth) throws MojoExecutionException;
+
+    /**
+     * basically calls 'git fetch {remote} {refSpec}'
+     */
+    void fetch(Git git, String remote, String refSpec) throws MojoExecutionException;
+
+    /**
+     * basically calls 'git rebase {upstream}' on current branch, rebase is aborted if it fails
+     * @return true if rebased successfully
+     */
+    boolean rebase(Git git, String upstream) throws MojoExecutionException;
+
     /**
      * @return if there are any uncommited changes in given git repo
      */
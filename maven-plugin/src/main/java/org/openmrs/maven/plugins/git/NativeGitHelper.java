@@ -0,0 +1,113 @@
+package org.openmrs.maven.plugins.git;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.transport.PushResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs fetch, rebase, push and clone with git executable installed in the system, which is much faster
+ * than JGit on large repositories. Other operations and all operations if git is not installed are run with JGit.
+ */
+public class NativeGitHelper extends DefaultGitHelper {
+
+    public static final String NAME = "native";
+
+    private static final String ASK_PASS_SCRIPT = "#!/bin/sh\n" +
+            "case \"$1\" in\n" +
+            "  Username*) echo \"$SDK_GIT_USERNAME\" ;;\n" +
+            "  *) echo \"$SDK_GIT_PASSWORD\" ;;\n" +
+            "esac\n";
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void cloneRepository(String uri, File directory, String branch, boolean singleBranch, Integer depth) throws MojoExecutionException {
+        if (!cloneWithGitExecutable(uri, directory, branch, singleBranch, depth)) {
+            super.cloneRepository(uri, directory, branch, singleBranch, depth);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void fetch(Git git, String remote, String refSpec) throws MojoExecutionException {
+        if (!GitExecutable.isAvailable()) {
+            super.fetch(git, remote, refSpec);
+            return;
+        }
+        int exitCode = GitExecutable.run(git.getRepository().getWorkTree(), "fetch", remote, refSpec);
+        if (exitCode != 0) {
+            throw new MojoExecutionException("Failed to fetch " + refSpec + " from " + remote + ", git exited with code " + exitCode);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean rebase(Git git, String upstream) throws MojoExecutionException {
+        if (!GitExecutable.isAvailable()) {
+            return super.rebase(git, upstream);
+        }
+        File workTree = git.getRepository().getWorkTree();
+        if (GitExecutable.run(workTree, "rebase", upstream) != 0) {
+            if (git.getRepository().getRepositoryState().isRebasing()) {
+                GitExecutable.run(workTree, "rebase", "--abort");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Iterable<PushResult> push(Git git, String username, String password, String reference, String remote, boolean force) {
+        //credentials are passed with an askpass script, which is not supported on Windows
+        if (!GitExecutable.isAvailable() || File.separatorChar == '\\') {
+            return super.push(git, username, password, reference, remote, force);
+        }
+        List<String> args = new ArrayList<>(Arrays.asList("push"));
+        if (force) {
+            args.add("--force");
+        }
+        args.add(remote);
+        args.add(reference);
+
+        File askPass = null;
+        try {
+            askPass = File.createTempFile("sdk-askpass", ".sh");
+            FileUtils.writeStringToFile(askPass, ASK_PASS_SCRIPT);
+            askPass.setExecutable(true, true);
+
+            Map<String, String> environment = new HashMap<>();
+            environment.put("GIT_ASKPASS", askPass.getAbsolutePath());
+            environment.put("GIT_TERMINAL_PROMPT", "0");
+            environment.put("SDK_GIT_USERNAME", StringUtils.defaultString(username));
+            environment.put("SDK_GIT_PASSWORD", StringUtils.defaultString(password));
+            if (GitExecutable.run(git.getRepository().getWorkTree(), environment, args) != 0) {
+                throw new RuntimeException("Failed to push changes to " + remote);
+            }
+        } catch (IOException | MojoExecutionException e) {
+            throw new RuntimeException("Failed to push changes to " + remote, e);
+        } finally {
+            FileUtils.deleteQuietly(askPass);
+        }
+        //git executable does not report results in JGit format, failures are thrown
+        return Collections.emptyList();
+    }
+}
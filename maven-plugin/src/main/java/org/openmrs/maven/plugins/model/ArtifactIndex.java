@@ -0,0 +1,173 @@
+package org.openmrs.maven.plugins.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of artifacts by identity, used by merge and diff operations on artifact lists
+ * so they look artifacts up by key instead of comparing every pair of artifacts.
+ * Keys are computed and versions parsed once, when an artifact is indexed.
+ * If a list contains several artifacts with the same key, the first one is indexed.
+ */
+public class ArtifactIndex {
+
+    /**
+     * Strategy deciding which artifacts are considered the same artifact
+     */
+    public interface KeyStrategy {
+        String getKey(Artifact artifact);
+    }
+
+    /**
+     * Artifacts are the same if their destination file names start with the same id,
+     * e.g. 'webservices' for 'webservices.rest-2.16.omod'
+     */
+    public static final KeyStrategy BY_FILE_ID = new KeyStrategy() {
+        @Override
+        public String getKey(Artifact artifact) {
+            String name = artifact.getDestFileName();
+            int index = name.indexOf('-');
+            if (index == -1) return name;
+            return name.substring(0, index);
+        }
+    };
+
+    /**
+     * Artifacts are the same if they have equal groupId and artifactId
+     */
+    public static final KeyStrategy BY_GROUP_AND_ARTIFACT_ID = new KeyStrategy() {
+        @Override
+        public String getKey(Artifact artifact) {
+            return artifact.getGroupId() + ':' + artifact.getArtifactId();
+        }
+    };
+
+    /**
+     * Artifacts are the same if they have equal groupId, artifactId and type
+     */
+    public static final KeyStrategy BY_GROUP_ARTIFACT_ID_AND_TYPE = new KeyStrategy() {
+        @Override
+        public String getKey(Artifact artifact) {
+            return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getType();
+        }
+    };
+
+    /**
+     * Indexed artifact together with its key and parsed version
+     */
+    public static class Entry {
+        private final String key;
+        private final Artifact artifact;
+        private final Version version;
+
+        Entry(String key, Artifact artifact) {
+            this.key = key;
+            this.artifact = artifact;
+            this.version = artifact.getVersion() != null ? new Version(artifact.getVersion()) : null;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Artifact getArtifact() {
+            return artifact;
+        }
+
+        /**
+         * @return parsed version or null if artifact has no version
+         */
+        public Version getVersion() {
+            return version;
+        }
+    }
+
+    private final KeyStrategy keyStrategy;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public ArtifactIndex(KeyStrategy keyStrategy) {
+        this.keyStrategy = keyStrategy;
+    }
+
+    public ArtifactIndex(KeyStrategy keyStrategy, Collection<Artifact> artifacts) {
+        this(keyStrategy);
+        for (Artifact artifact : artifacts) {
+            add(artifact);
+        }
+    }
+
+    /**
+     * Creates entry for artifact using key strategy of this index, without adding it to the index
+     */
+    public Entry entryOf(Artifact artifact) {
+        return new Entry(keyStrategy.getKey(artifact), artifact);
+    }
+
+    /**
+     * Adds artifact to the index, unless artifact with the same key is indexed already
+     *
+     * @return entry of indexed artifact with the same key
+     */
+    public Entry add(Artifact artifact) {
+        String key = keyStrategy.getKey(artifact);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, artifact);
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds artifact to the index, replacing artifact with the same key if present.
+     * Replaced artifact is moved to the end of the index
+     */
+    public Entry put(Artifact artifact) {
+        Entry entry = new Entry(keyStrategy.getKey(artifact), artifact);
+        entries.remove(entry.getKey());
+        entries.put(entry.getKey(), entry);
+        return entry;
+    }
+
+    /**
+     * @return entry of indexed artifact which is the same as passed artifact or null if there is none
+     */
+    public Entry get(Artifact artifact) {
+        return entries.get(keyStrategy.getKey(artifact));
+    }
+
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public boolean contains(Artifact artifact) {
+        return entries.containsKey(keyStrategy.getKey(artifact));
+    }
+
+    public boolean containsKey(String key) {
+        return entries.containsKey(key);
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return indexed artifacts in order of indexing
+     */
+    public List<Artifact> getArtifacts() {
+        List<Artifact> artifacts = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            artifacts.add(entry.getArtifact());
+        }
+        return artifacts;
+    }
+}
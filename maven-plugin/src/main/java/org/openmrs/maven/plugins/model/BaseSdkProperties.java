@@ -3,7 +3,9 @@ package org.openmrs.maven.plugins.model;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -25,6 +27,91 @@ public abstract class BaseSdkProperties {
 
     protected Properties properties;
 
+    /**
+     * values parsed from properties, valid until properties are modified
+     */
+    private final Map<String, Object> parsedValues = new HashMap<>();
+    private Properties parsedFrom;
+    private int parsedModifications;
+
+    /**
+     * Properties which count their modifications, so that values parsed from them can be cached
+     */
+    protected static class TrackedProperties extends Properties {
+
+        private int modifications;
+
+        public TrackedProperties() {}
+
+        public TrackedProperties(Properties properties) {
+            if (properties != null) {
+                putAll(properties);
+            }
+        }
+
+        @Override
+        public synchronized Object put(Object key, Object value) {
+            modifications++;
+            return super.put(key, value);
+        }
+
+        @Override
+        public synchronized Object remove(Object key) {
+            modifications++;
+            return super.remove(key);
+        }
+
+        @Override
+        public synchronized void putAll(Map<?, ?> t) {
+            modifications++;
+            super.putAll(t);
+        }
+
+        @Override
+        public synchronized void clear() {
+            modifications++;
+            super.clear();
+        }
+
+        public synchronized int getModifications() {
+            return modifications;
+        }
+    }
+
+    /**
+     * @return value cached with {@link #putParsed(String, Object)} or null if properties changed since then
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T getParsed(String name) {
+        if (!(properties instanceof TrackedProperties)) {
+            return null;
+        }
+        int modifications = ((TrackedProperties) properties).getModifications();
+        if (parsedFrom != properties || parsedModifications != modifications) {
+            parsedValues.clear();
+            parsedFrom = properties;
+            parsedModifications = modifications;
+        }
+        return (T) parsedValues.get(name);
+    }
+
+    protected void putParsed(String name, Object value) {
+        if (properties == parsedFrom) {
+            parsedValues.put(name, value);
+        }
+    }
+
+    protected static List<Artifact> copyArtifacts(List<Artifact> artifacts) {
+        List<Artifact> copies = new ArrayList<>(artifacts.size());
+        for (Artifact artifact : artifacts) {
+            Artifact copy = new Artifact(artifact.getArtifactId(), artifact.getVersion(), artifact.getGroupId(),
+                    artifact.getType(), artifact.getFileExtension());
+            copy.setClassifier(artifact.getClassifier());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
     public Properties getModuleAndWarProperties(List<Artifact> warArtifacts, List<Artifact> moduleArtifacts) {
         Properties properties = new Properties();
         for (Artifact artifact : warArtifacts) {
@@ -84,15 +171,19 @@ public abstract class BaseSdkProperties {
     }
 
     public List<Artifact> getModuleArtifacts(){
-        List<Artifact> artifactList = new ArrayList<>();
-        for (Object keyObject: getAllKeys()) {
-            String key = keyObject.toString();
-            String artifactType = getArtifactType(key);
-            if(artifactType.equals(TYPE_OMOD)) {
-                artifactList.add(new Artifact(checkIfOverwritten(key, ARTIFACT_ID), getParam(key), checkIfOverwritten(key, GROUP_ID), checkIfOverwritten(key, TYPE), "omod"));
+        List<Artifact> artifactList = getParsed(TYPE_OMOD);
+        if (artifactList == null) {
+            artifactList = new ArrayList<>();
+            for (Object keyObject: getAllKeys()) {
+                String key = keyObject.toString();
+                String artifactType = getArtifactType(key);
+                if(artifactType.equals(TYPE_OMOD)) {
+                    artifactList.add(new Artifact(checkIfOverwritten(key, ARTIFACT_ID), getParam(key), checkIfOverwritten(key, GROUP_ID), checkIfOverwritten(key, TYPE), "omod"));
+                }
             }
+            putParsed(TYPE_OMOD, artifactList);
         }
-        return  artifactList;
+        return copyArtifacts(artifactList);
     }
 
     public List<Artifact> getOwaArtifacts() {
@@ -108,15 +199,19 @@ public abstract class BaseSdkProperties {
     }
 
     public List<Artifact> getWarArtifacts(){
-        List<Artifact> artifactList = new ArrayList<>();
-        for (Object keyObject: getAllKeys()) {
-            String key = keyObject.toString();
-            String artifactType = getArtifactType(key);
-            if(artifactType.equals(TYPE_WAR)) {
-                artifactList.add(new Artifact(checkIfOverwritten(key, ARTIFACT_ID), getParam(key), checkIfOverwritten(key, GROUP_ID), checkIfOverwritten(key, TYPE)));
+        List<Artifact> artifactList = getParsed(TYPE_WAR);
+        if (artifactList == null) {
+            artifactList = new ArrayList<>();
+            for (Object keyObject: getAllKeys()) {
+                String key = keyObject.toString();
+                String artifactType = getArtifactType(key);
+                if(artifactType.equals(TYPE_WAR)) {
+                    artifactList.add(new Artifact(checkIfOverwritten(key, ARTIFACT_ID), getParam(key), checkIfOverwritten(key, GROUP_ID), checkIfOverwritten(key, TYPE)));
+                }
             }
+            putParsed(TYPE_WAR, artifactList);
         }
-        return  artifactList;
+        return copyArtifacts(artifactList);
     }
 
     protected Set<Object> getAllKeys(){
@@ -223,18 +318,11 @@ public abstract class BaseSdkProperties {
     public void removeModuleProperties(Artifact artifact) {
         artifact = getArtifactWithStrippedArtifactId(artifact);
         if (getModuleArtifact(artifact.getArtifactId()) != null) {
-            Properties newProperties = new Properties();
-            newProperties.putAll(properties);
-            for(Object keyObject: properties.keySet()){
-                String key = keyObject.toString();
-                if(key.equals(TYPE_OMOD+"."+artifact.getArtifactId())){
-                    newProperties.remove(key);
-                } else if(key.equals(TYPE_OMOD+"."+artifact.getArtifactId()+"."+TYPE)){
-                    newProperties.remove(key);
-                } else if(key.equals(TYPE_OMOD+"."+artifact.getArtifactId()+"."+GROUP_ID)){
-                    newProperties.remove(key);
-                }
-            }
+            Properties newProperties = new TrackedProperties(properties);
+            String key = TYPE_OMOD + "." + artifact.getArtifactId();
+            newProperties.remove(key);
+            newProperties.remove(key + "." + TYPE);
+            newProperties.remove(key + "." + GROUP_ID);
             properties = newProperties;
         }
     }
@@ -0,0 +1,325 @@
+package org.openmrs.maven.plugins.model;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Lists artifacts of a distribution built by build-distro with paths of their files relative to the build directory,
+ * so that the next build only fetches artifacts which changed. Files bundled in a war have paths in format
+ * 'openmrs.war!/WEB-INF/...'.
+ */
+public class DistroManifest {
+
+    public static final String MANIFEST_FILE_NAME = "openmrs-distro-manifest.txt";
+
+    public static final String NESTED_PATH_SEPARATOR = "!/";
+
+    private static final String HEADER = "# Generated automatically by openmrs SDK";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String BUNDLED_PROPERTY = "bundled=";
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private Boolean bundled;
+
+    /**
+     * @return manifest saved in the directory, empty if there is none
+     */
+    public static DistroManifest load(File directory) throws MojoExecutionException {
+        DistroManifest manifest = new DistroManifest();
+        File file = new File(directory, MANIFEST_FILE_NAME);
+        if (!file.exists()) {
+            return manifest;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith(BUNDLED_PROPERTY)) {
+                    manifest.setBundled(Boolean.parseBoolean(line.substring(BUNDLED_PROPERTY.length())));
+                    continue;
+                }
+                String[] fields = line.split(SEPARATOR);
+                if (fields.length != 4) {
+                    throw new MojoExecutionException("Invalid line in " + file + ": " + line);
+                }
+                manifest.add(new Entry(fields[1], fields[0], Long.parseLong(fields[2]), fields[3]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new MojoExecutionException("Failed to read " + file, e);
+        }
+        return manifest;
+    }
+
+    /**
+     * Entries are sorted by path, so that the same distribution always produces the same manifest
+     */
+    public void saveTo(File directory) throws MojoExecutionException {
+        File file = new File(directory, MANIFEST_FILE_NAME);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write("\n");
+            if (bundled != null) {
+                writer.write(BUNDLED_PROPERTY + bundled + "\n");
+            }
+            for (Entry entry : entries.values()) {
+                writer.write(entry.getPath() + SEPARATOR + entry.getCoordinates() + SEPARATOR + entry.getSize()
+                        + SEPARATOR + entry.getSha256() + "\n");
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write " + file, e);
+        }
+    }
+
+    /**
+     * @return whether modules and OWAs are bundled in the war, null if it is not known, e.g. for an old manifest
+     */
+    public Boolean getBundled() {
+        return bundled;
+    }
+
+    public void setBundled(Boolean bundled) {
+        this.bundled = bundled;
+    }
+
+    public void add(Entry entry) {
+        entries.put(entry.getPath(), entry);
+    }
+
+    /**
+     * Adds an entry for the file with the given path relative to the directory
+     */
+    public Entry add(String coordinates, File directory, String path) throws MojoExecutionException {
+        return add(coordinates, path, new File(directory, path));
+    }
+
+    /**
+     * Adds an entry for the file, which may be stored under a different path, e.g. bundled in a war
+     */
+    public Entry add(String coordinates, String path, File file) throws MojoExecutionException {
+        Entry entry = new Entry(coordinates, path, file.length(), sha256(file));
+        add(entry);
+        return entry;
+    }
+
+    public Entry find(String coordinates) {
+        for (Entry entry : entries.values()) {
+            if (entry.getCoordinates().equals(coordinates)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    public boolean contains(String path) {
+        return entries.containsKey(path);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return entry of the artifact, if it is a release and its file in the directory did not change, otherwise null
+     */
+    public Entry findUpToDate(String coordinates, File directory) throws MojoExecutionException {
+        Entry entry = find(coordinates);
+        if (entry == null || isSnapshot(coordinates) || entry.getPath().contains(NESTED_PATH_SEPARATOR)) {
+            return null;
+        }
+        File file = new File(directory, entry.getPath());
+        if (!file.isFile() || file.length() != entry.getSize() || !sha256(file).equals(entry.getSha256())) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return entries of other files than in the given manifest
+     */
+    public List<Entry> getStaleEntries(DistroManifest current) {
+        List<Entry> stale = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (!current.contains(entry.getPath())) {
+                stale.add(entry);
+            }
+        }
+        return stale;
+    }
+
+    public static String getCoordinates(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion() + ":" + artifact.getType();
+    }
+
+    public static String getOwaCoordinates(Artifact owa) {
+        return "owa:" + owa.getArtifactId() + ":" + owa.getVersion();
+    }
+
+    private static boolean isSnapshot(String coordinates) {
+        return coordinates.contains("SNAPSHOT");
+    }
+
+    /**
+     * Checks files of all entries in parallel, including files bundled in a war
+     *
+     * @return descriptions of files which are missing or differ from the manifest, empty if all match
+     */
+    public List<String> verify(final File directory, int threads) throws MojoExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (final Entry entry : entries.values()) {
+                results.add(executor.submit(new Callable<String>() {
+
+                    @Override
+                    public String call() throws Exception {
+                        return verify(directory, entry);
+                    }
+                }));
+            }
+            List<String> problems = new ArrayList<>();
+            for (Future<String> result : results) {
+                String problem = result.get();
+                if (problem != null) {
+                    problems.add(problem);
+                }
+            }
+            return problems;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while verifying files", e);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Failed to verify files", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String verify(File directory, Entry entry) throws IOException, MojoExecutionException {
+        int nested = entry.getPath().indexOf(NESTED_PATH_SEPARATOR);
+        if (nested < 0) {
+            File file = new File(directory, entry.getPath());
+            if (!file.isFile()) {
+                return entry.getPath() + " is missing";
+            }
+            if (file.length() != entry.getSize()) {
+                return entry.getPath() + " has size " + file.length() + " instead of " + entry.getSize();
+            }
+            if (!sha256(file).equals(entry.getSha256())) {
+                return entry.getPath() + " has a different checksum";
+            }
+            return null;
+        }
+
+        File archive = new File(directory, entry.getPath().substring(0, nested));
+        if (!archive.isFile()) {
+            return archive.getName() + " is missing";
+        }
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            ZipEntry zipEntry = zipFile.getEntry(entry.getPath().substring(nested + NESTED_PATH_SEPARATOR.length()));
+            if (zipEntry == null) {
+                return entry.getPath() + " is missing";
+            }
+            if (zipEntry.getSize() != entry.getSize()) {
+                return entry.getPath() + " has size " + zipEntry.getSize() + " instead of " + entry.getSize();
+            }
+            try (InputStream in = zipFile.getInputStream(zipEntry)) {
+                if (!sha256(in).equals(entry.getSha256())) {
+                    return entry.getPath() + " has a different checksum";
+                }
+            }
+        }
+        return null;
+    }
+
+    public static String sha256(File file) throws MojoExecutionException {
+        try (InputStream in = new FileInputStream(file)) {
+            return sha256(in);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to compute checksum of " + file, e);
+        }
+    }
+
+    private static String sha256(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    public static class Entry {
+
+        private final String coordinates;
+
+        private final String path;
+
+        private final long size;
+
+        private final String sha256;
+
+        public Entry(String coordinates, String path, long size, String sha256) {
+            this.coordinates = coordinates;
+            this.path = path;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        public String getCoordinates() {
+            return coordinates;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.openmrs.maven.plugins.utility.DistroHelper;
 import org.openmrs.maven.plugins.utility.SortedProperties;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -31,7 +32,7 @@ public class DistroProperties extends BaseSdkProperties {
 
 
     public DistroProperties(String version){
-        properties = new Properties();
+        properties = new TrackedProperties();
         try {
             loadPropertiesFromResource(createFileName(version));
         } catch (MojoExecutionException e) {
@@ -40,18 +41,18 @@ public class DistroProperties extends BaseSdkProperties {
     }
 
     public DistroProperties(String name, String version){
-        properties = new Properties();
+        properties = new TrackedProperties();
         setName(name);
         setVersion("1.0");
         setPlatformVersion(version);
     }
 
     public DistroProperties(Properties properties){
-        this.properties = properties;
+        this.properties = new TrackedProperties(properties);
     }
 
     public DistroProperties(File file) throws MojoExecutionException{
-        this.properties = new Properties();
+        this.properties = new TrackedProperties();
         loadPropertiesFromFile(file);
     }
 
@@ -193,18 +194,9 @@ public class DistroProperties extends BaseSdkProperties {
     private List<Artifact> mergeArtifactLists(List<Artifact> childArtifacts, List<Artifact> parentArtifacts) {
         List<Artifact> artifactList = new ArrayList<>();
         artifactList.addAll(childArtifacts);
+        ArtifactIndex childIndex = new ArtifactIndex(ArtifactIndex.BY_GROUP_ARTIFACT_ID_AND_TYPE, childArtifacts);
         for (Artifact parentArtifact : parentArtifacts) {
-            boolean found = false;
-            for (Artifact childArtifact : childArtifacts) {
-                boolean isGroupIdMatch = childArtifact.getGroupId().equals(parentArtifact.getGroupId());
-                boolean isArtifactIdMatch = childArtifact.getArtifactId().equals(parentArtifact.getArtifactId());
-                boolean isTypeMatch = childArtifact.getType().equals(parentArtifact.getType());
-                if (isGroupIdMatch && isArtifactIdMatch && isTypeMatch) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
+            if (!childIndex.contains(parentArtifact)) {
                 artifactList.add(parentArtifact);
             }
         }
@@ -217,7 +209,11 @@ public class DistroProperties extends BaseSdkProperties {
             out = new FileOutputStream(new File(path, DISTRO_FILE_NAME));
             SortedProperties sortedProperties = new SortedProperties();
             sortedProperties.putAll(properties);
-            sortedProperties.store(out, null);
+            ByteArrayOutputStream stored = new ByteArrayOutputStream();
+            sortedProperties.store(stored, null);
+            //skip the timestamp comment, so that the same properties are always saved to the same file
+            String content = stored.toString("ISO-8859-1");
+            out.write(content.substring(content.indexOf('\n') + 1).getBytes("ISO-8859-1"));
         }
         catch (IOException e) {
             throw new MojoExecutionException(e.getMessage());
@@ -0,0 +1,99 @@
+package org.openmrs.maven.plugins.model;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Keeps totals of bytes installed on servers and time it took, used to estimate duration of future installations
+ */
+public class InstallStatistics {
+
+    private static final String INSTALL_STATS_FILE_NAME = "sdk-install-stats.properties";
+    private static final String INSTALLED_BYTES = "installed.bytes";
+    private static final String INSTALLED_MILLIS = "installed.millis";
+
+    private final File file;
+
+    private final Properties statistics = new Properties();
+
+    InstallStatistics(File file) throws MojoExecutionException {
+        this.file = file;
+        if (file.exists()) {
+            FileInputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                statistics.load(in);
+            } catch (IOException e) {
+                throw new MojoExecutionException(e.getMessage());
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+    }
+
+    public static InstallStatistics loadStatistics() throws MojoExecutionException {
+        return new InstallStatistics(new File(Server.getServersPath(), INSTALL_STATS_FILE_NAME));
+    }
+
+    /**
+     * Adds installation of given number of bytes, which took given time, to totals and saves them
+     */
+    public void recordInstallation(long bytes, long millis) throws MojoExecutionException {
+        if (bytes <= 0 || millis <= 0) {
+            return;
+        }
+        statistics.setProperty(INSTALLED_BYTES, String.valueOf(getLong(INSTALLED_BYTES) + bytes));
+        statistics.setProperty(INSTALLED_MILLIS, String.valueOf(getLong(INSTALLED_MILLIS) + millis));
+        save();
+    }
+
+    /**
+     * @return average recorded installation throughput or null if nothing has been recorded yet
+     */
+    public Double getBytesPerSecond() {
+        long bytes = getLong(INSTALLED_BYTES);
+        long millis = getLong(INSTALLED_MILLIS);
+        if (bytes <= 0 || millis <= 0) {
+            return null;
+        }
+        return bytes * 1000.0 / millis;
+    }
+
+    /**
+     * @return expected time of installing given number of bytes or null if there is no recorded throughput
+     */
+    public Long estimateMillis(long bytes) {
+        Double bytesPerSecond = getBytesPerSecond();
+        if (bytesPerSecond == null) {
+            return null;
+        }
+        return Math.round(bytes * 1000.0 / bytesPerSecond);
+    }
+
+    private long getLong(String key) {
+        try {
+            return Long.parseLong(statistics.getProperty(key, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void save() throws MojoExecutionException {
+        FileOutputStream out = null;
+        try {
+            file.getParentFile().mkdirs();
+            out = new FileOutputStream(file);
+            statistics.store(out, null);
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+}
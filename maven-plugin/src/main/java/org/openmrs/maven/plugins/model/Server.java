@@ -25,6 +25,10 @@ public class Server extends BaseSdkProperties {
     public static final String PROPERTY_SERVER_ID = "server.id";
     public static final String PROPERTY_DB_DRIVER = "connection.driver_class";
     public static final String PROPERTY_DOCKER_MYSQL = "db.docker.container";
+    public static final String PROPERTY_DOCKER_MYSQL_RESOLVED_ID = "db.docker.container.id";
+    public static final String PROPERTY_DOCKER_DB_IMAGE = "db.docker.image";
+    public static final String PROPERTY_DOCKER_DB_PROFILE = "db.docker.profile";
+    public static final String PROPERTY_DB_EPHEMERAL = "db.ephemeral";
     public static final String PROPERTY_DB_USER = "connection.username";
     public static final String PROPERTY_DB_PASS = "connection.password";
     public static final String PROPERTY_DB_URI = "connection.url";
@@ -34,6 +38,7 @@ public class Server extends BaseSdkProperties {
     public static final String PROPERTY_DB_NAME = "database_name";
     public static final String PROPERTY_USER_MODULES = "user_modules";
     public static final String PROPERTY_USER_OWAS = "user_owas";
+    public static final String PROPERTY_WATCHED_PROJECTS = "watched.projects";
     public static final String PROPERTY_DEMO_DATA = "add_demo_data";
     public static final String PROPERTY_DISTRO_ARTIFACT_ID = "distro.artifactId";
     public static final String PROPERTY_DISTRO_GROUP_ID = "distro.groupId";
@@ -54,6 +59,8 @@ public class Server extends BaseSdkProperties {
 
     public static final String PROPERTY_SERVER_PORT = "server.port";
 
+    private static final String CUSTOM_PROPERTY_PREFIX = "property.";
+
     private static String serversPath = System.getProperty("user.home")+File.separator+SDKConstants.OPENMRS_SERVER_PATH;
 
     private File propertiesFile;
@@ -139,6 +146,21 @@ public class Server extends BaseSdkProperties {
             return this;
         }
 
+        public ServerBuilder setDbImage(String image) {
+            server.setDbImage(image);
+            return this;
+        }
+
+        public ServerBuilder setDbProfile(String profile) {
+            server.setDbProfile(profile);
+            return this;
+        }
+
+        public ServerBuilder setDbEphemeral(boolean ephemeral) {
+            server.setDbEphemeral(ephemeral);
+            return this;
+        }
+
         public ServerBuilder setDebugPort(String port){
             server.setDebugPort(port);
             return this;
@@ -151,7 +173,7 @@ public class Server extends BaseSdkProperties {
     }
 
     private Server() {
-        properties = new Properties();
+        properties = new TrackedProperties();
     };
     private Server(File file, Properties properties) {
         if (file != null) {
@@ -196,7 +218,7 @@ public class Server extends BaseSdkProperties {
     }
 
     public static Server createServer(File dir) {
-        Properties properties = new Properties();
+        Properties properties = new TrackedProperties();
         return new Server(dir, properties);
     }
 
@@ -211,7 +233,7 @@ public class Server extends BaseSdkProperties {
             throw new IllegalArgumentException(SDKConstants.OPENMRS_SERVER_PROPERTIES + " properties file is missing");
         }
 
-        Properties properties = new Properties();
+        Properties properties = new TrackedProperties();
         File config = new File(dir, SDKConstants.OPENMRS_SERVER_PROPERTIES);
 
         FileInputStream in = null;
@@ -266,13 +288,15 @@ public class Server extends BaseSdkProperties {
      * @throws MojoExecutionException
      */
     public void saveBackupProperties() throws MojoExecutionException {
-        File backupProperties = new File(getServerDirectory(), OLD_PROPERTIES_FILENAME);
-        saveTo(backupProperties);
+        saveTo(getBackupPropertiesFile());
     }
 
     public void deleteBackupProperties() throws MojoExecutionException {
-        File backupProperties = new File(getServerDirectory(), OLD_PROPERTIES_FILENAME);
-        backupProperties.delete();
+        getBackupPropertiesFile().delete();
+    }
+
+    public File getBackupPropertiesFile() {
+        return new File(getServerDirectory(), OLD_PROPERTIES_FILENAME);
     }
     public File getDistroPropertiesFile(){
         return new File(getServerDirectory(), DistroProperties.DISTRO_FILE_NAME);
@@ -426,7 +450,7 @@ public class Server extends BaseSdkProperties {
             list.add(String.format("%s,%s,%s", watchedProject.getGroupId(),
                     watchedProject.getArtifactId(), watchedProject.getPath()));
         }
-        properties.setProperty("watched.projects", StringUtils.join(list.iterator(), ";"));
+        properties.setProperty(PROPERTY_WATCHED_PROJECTS, StringUtils.join(list.iterator(), ";"));
     }
 
     public void clearWatchedProjects() {
@@ -466,28 +490,36 @@ public class Server extends BaseSdkProperties {
     }
 
     public Set<Project> getWatchedProjects() {
-        String watchedProjectsProperty = properties.getProperty("watched.projects");
-        if (StringUtils.isBlank(watchedProjectsProperty)) {
-            return new LinkedHashSet<Project>();
+        return new LinkedHashSet<>(getParsedWatchedProjects());
+    }
+
+    public boolean hasWatchedProjects() {
+        return !getParsedWatchedProjects().isEmpty();
+    }
+
+    private Set<Project> getParsedWatchedProjects() {
+        Set<Project> watchedProjects = getParsed(PROPERTY_WATCHED_PROJECTS);
+        if (watchedProjects != null) {
+            return watchedProjects;
         }
 
-        Set<Project> watchedProjects = new LinkedHashSet<Project>();
-        for (String watchedProjectProperty : watchedProjectsProperty.split(";")) {
-            if (StringUtils.isBlank(watchedProjectProperty)) {
-                continue;
-            }
+        watchedProjects = new LinkedHashSet<>();
+        String watchedProjectsProperty = properties.getProperty(PROPERTY_WATCHED_PROJECTS);
+        if (StringUtils.isNotBlank(watchedProjectsProperty)) {
+            for (String watchedProjectProperty : watchedProjectsProperty.split(";")) {
+                if (StringUtils.isBlank(watchedProjectProperty)) {
+                    continue;
+                }
 
-            String[] watchedProject = watchedProjectProperty.split(",");
-            Project project = new Project(watchedProject[0], watchedProject[1], null, watchedProject[2]);
-            watchedProjects.add(project);
+                String[] watchedProject = watchedProjectProperty.split(",");
+                Project project = new Project(watchedProject[0], watchedProject[1], null, watchedProject[2]);
+                watchedProjects.add(project);
+            }
         }
+        putParsed(PROPERTY_WATCHED_PROJECTS, watchedProjects);
         return watchedProjects;
     }
 
-    public boolean hasWatchedProjects() {
-        return !getWatchedProjects().isEmpty();
-    }
-
     /**
      * adds artifact to user modules list in openmrs-server.properties file
      */
@@ -519,8 +551,12 @@ public class Server extends BaseSdkProperties {
     }
 
     public List<Artifact> getUserModules() throws MojoExecutionException {
+        List<Artifact> result = getParsed(PROPERTY_USER_MODULES);
+        if (result != null) {
+            return copyArtifacts(result);
+        }
         String values = getParam(Server.PROPERTY_USER_MODULES);
-        List<Artifact> result = new ArrayList<>();
+        result = new ArrayList<>();
         if (values != null && !values.equals("")) {
             String[] modules = values.split(Server.COMMA);
             for (String mod: modules) {
@@ -537,7 +573,8 @@ public class Server extends BaseSdkProperties {
                 }
             }
         }
-        return result;
+        putParsed(PROPERTY_USER_MODULES, result);
+        return copyArtifacts(result);
     }
 
     /**
@@ -558,27 +595,19 @@ public class Server extends BaseSdkProperties {
      * @throws MojoExecutionException
      */
     static List<Artifact> mergeArtifactLists(List<Artifact> baseArtifacts, List<Artifact> updateArtifacts) throws MojoExecutionException {
-        List<Artifact> updatedList = new ArrayList<>(baseArtifacts);
+        ArtifactIndex updatedIndex = new ArtifactIndex(ArtifactIndex.BY_GROUP_AND_ARTIFACT_ID, baseArtifacts);
         for(Artifact updateArtifact : updateArtifacts){
-            boolean notFound = true;
-            for(Artifact baseArtifact : baseArtifacts){
-                boolean equalArtifactId = updateArtifact.getArtifactId().equals(baseArtifact.getArtifactId());
-                boolean equalGroupId = updateArtifact.getGroupId().equals(baseArtifact.getGroupId());
-                if(equalArtifactId && equalGroupId){
-                    notFound = false;
-                    Version baseVersion = new Version(baseArtifact.getVersion());
-                    Version updateVersion = new Version(updateArtifact.getVersion());
-                    if(!baseVersion.equal(updateVersion)){
-                        updatedList.remove(baseArtifact);
-                        updatedList.add(updateArtifact);
-                    }
+            ArtifactIndex.Entry baseEntry = updatedIndex.get(updateArtifact);
+            if(baseEntry == null){
+                updatedIndex.put(updateArtifact);
+            } else {
+                Version updateVersion = new Version(updateArtifact.getVersion());
+                if(!baseEntry.getVersion().equal(updateVersion)){
+                    updatedIndex.put(updateArtifact);
                 }
             }
-            if(notFound){
-                updatedList.add(updateArtifact);
-            }
         }
-        return updatedList;
+        return updatedIndex.getArtifacts();
     }
 
     public String getArtifactId(String filename) {
@@ -847,11 +876,69 @@ public class Server extends BaseSdkProperties {
     }
 
     public void setContainerId(String containerId) {
+        if (containerId == null || !containerId.equals(getContainerId())) {
+            properties.remove(PROPERTY_DOCKER_MYSQL_RESOLVED_ID);
+        }
         setParam(PROPERTY_DOCKER_MYSQL, containerId);
     }
 
+    /**
+     * @return id to which the DB container was resolved last time
+     */
+    public String getResolvedContainerId() {
+        return getParam(PROPERTY_DOCKER_MYSQL_RESOLVED_ID);
+    }
+
+    public void setResolvedContainerId(String resolvedContainerId) {
+        setParam(PROPERTY_DOCKER_MYSQL_RESOLVED_ID, resolvedContainerId);
+    }
+
+    /**
+     * @return MySQL or MariaDB image of the SDK DB container
+     */
+    public String getDbImage() {
+        return getParam(PROPERTY_DOCKER_DB_IMAGE);
+    }
+
+    public void setDbImage(String image) {
+        setParam(PROPERTY_DOCKER_DB_IMAGE, image);
+    }
+
+    /**
+     * @return profile of mysqld settings of the SDK DB container, e.g. dev-fast or prod-like
+     */
+    public String getDbProfile() {
+        return getParam(PROPERTY_DOCKER_DB_PROFILE);
+    }
+
+    public void setDbProfile(String profile) {
+        setParam(PROPERTY_DOCKER_DB_PROFILE, profile);
+    }
+
+    /**
+     * @return true if data of the database does not need to be durable, e.g. for integration tests and CI
+     */
+    public boolean isDbEphemeral() {
+        return Boolean.parseBoolean(getParam(PROPERTY_DB_EPHEMERAL));
+    }
+
+    public void setDbEphemeral(boolean ephemeral) {
+        if (ephemeral) {
+            setParam(PROPERTY_DB_EPHEMERAL, "true");
+        } else {
+            properties.remove(PROPERTY_DB_EPHEMERAL);
+        }
+    }
+
+    /**
+     * @return file to which in-memory H2 database of an ephemeral server is saved
+     */
+    public File getDbSnapshotFile() {
+        return new File(new File(serverDirectory, "database"), getDbName() + "-snapshot.sql");
+    }
+
     public void setPropertyValue(String propertyName, String value){
-        setParam("property."+propertyName, value);
+        setParam(CUSTOM_PROPERTY_PREFIX + propertyName, value);
     }
 
     public void deleteServerTmpDirectory() {
@@ -885,14 +972,18 @@ public class Server extends BaseSdkProperties {
     }
 
     public HashMap<String, String> getCustomProperties(){
-        HashMap<String, String> customProperties = new LinkedHashMap<>();
-        for(Object key: properties.keySet()){
-            if(key.toString().startsWith("property.")){
-                String newKey = removePropertyStringFromKey(key.toString());
-                customProperties.put(newKey, properties.getProperty(key.toString()));
+        HashMap<String, String> customProperties = getParsed(CUSTOM_PROPERTY_PREFIX);
+        if (customProperties == null) {
+            customProperties = new LinkedHashMap<>();
+            for(Object key: properties.keySet()){
+                if(key.toString().startsWith(CUSTOM_PROPERTY_PREFIX)){
+                    String newKey = removePropertyStringFromKey(key.toString());
+                    customProperties.put(newKey, properties.getProperty(key.toString()));
+                }
             }
+            putParsed(CUSTOM_PROPERTY_PREFIX, customProperties);
         }
-        return customProperties;
+        return new LinkedHashMap<>(customProperties);
     }
 
     public HashMap<String, String> getServerProperty(String propertyName){
@@ -0,0 +1,152 @@
+package org.openmrs.maven.plugins.model;
+
+import com.google.gson.GsonBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of planning an upgrade without applying it, serializable to JSON
+ */
+public class UpgradePlan {
+
+    public static final String ACTION_ADD = "add";
+    public static final String ACTION_UPDATE = "update";
+    public static final String ACTION_DOWNGRADE = "downgrade";
+    public static final String ACTION_DELETE = "delete";
+
+    /**
+     * Single artifact change on the server
+     */
+    public static class Item {
+        private String action;
+        private String groupId;
+        private String artifactId;
+        private String type;
+        private String currentVersion;
+        private String targetVersion;
+        /**
+         * size in bytes or null if unknown
+         */
+        private Long size;
+        private boolean inLocalRepository;
+
+        public Item(String action, Artifact current, Artifact target) {
+            this.action = action;
+            Artifact artifact = target != null ? target : current;
+            this.groupId = artifact.getGroupId();
+            this.artifactId = artifact.getArtifactId();
+            this.type = artifact.getType();
+            this.currentVersion = current != null ? current.getVersion() : null;
+            this.targetVersion = target != null ? target.getVersion() : null;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public String getArtifactId() {
+            return artifactId;
+        }
+
+        public String getCurrentVersion() {
+            return currentVersion;
+        }
+
+        public String getTargetVersion() {
+            return targetVersion;
+        }
+
+        public Long getSize() {
+            return size;
+        }
+
+        public void setSize(Long size) {
+            this.size = size;
+        }
+
+        public boolean isInLocalRepository() {
+            return inLocalRepository;
+        }
+
+        public void setInLocalRepository(boolean inLocalRepository) {
+            this.inLocalRepository = inLocalRepository;
+        }
+    }
+
+    private String serverId;
+    private String distroName;
+    private String distroVersion;
+    private final List<Item> artifacts = new ArrayList<>();
+    private int artifactsToInstall;
+    private int artifactsInLocalRepository;
+    private long bytesToInstall;
+    private long bytesToDownload;
+    /**
+     * true if size of any artifact to install could not be determined, so byte totals are lower bounds
+     */
+    private boolean sizesIncomplete;
+    private Double recordedBytesPerSecond;
+    private Long estimatedInstallMillis;
+
+    public UpgradePlan(String serverId, String distroName, String distroVersion) {
+        this.serverId = serverId;
+        this.distroName = distroName;
+        this.distroVersion = distroVersion;
+    }
+
+    public void addItem(Item item) {
+        artifacts.add(item);
+        if (ACTION_DELETE.equals(item.getAction())) {
+            return;
+        }
+        artifactsToInstall++;
+        if (item.getSize() == null) {
+            sizesIncomplete = true;
+        } else {
+            bytesToInstall += item.getSize();
+        }
+        if (item.isInLocalRepository()) {
+            artifactsInLocalRepository++;
+        } else if (item.getSize() != null) {
+            bytesToDownload += item.getSize();
+        }
+    }
+
+    public List<Item> getArtifacts() {
+        return artifacts;
+    }
+
+    public boolean isEmpty() {
+        return artifacts.isEmpty();
+    }
+
+    public long getBytesToInstall() {
+        return bytesToInstall;
+    }
+
+    public long getBytesToDownload() {
+        return bytesToDownload;
+    }
+
+    public int getArtifactsInLocalRepository() {
+        return artifactsInLocalRepository;
+    }
+
+    public boolean isSizesIncomplete() {
+        return sizesIncomplete;
+    }
+
+    public Long getEstimatedInstallMillis() {
+        return estimatedInstallMillis;
+    }
+
+    public void setEstimate(Double recordedBytesPerSecond, Long estimatedInstallMillis) {
+        this.recordedBytesPerSecond = recordedBytesPerSecond;
+        this.estimatedInstallMillis = estimatedInstallMillis;
+    }
+
+    public String toJson() {
+        return new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(this);
+    }
+}
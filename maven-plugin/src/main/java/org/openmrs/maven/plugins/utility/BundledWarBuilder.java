@@ -0,0 +1,148 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds a war with bundled files in a single pass. Entries of the original war are copied in their order
+ * and added files are streamed in after them as stored entries, since modules and OWAs are already compressed.
+ * All entries get the same timestamp, so that the same input produces the same war.
+ */
+public class BundledWarBuilder {
+
+    /**
+     * Local date fields are fixed, so that the DOS timestamp in the zip does not depend on the time zone
+     */
+    private static final long ENTRY_TIME = new GregorianCalendar(1980, 1, 1, 0, 0, 0).getTimeInMillis();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File war;
+
+    private final Map<String, File> files = new TreeMap<>();
+
+    /**
+     * @param war file which is replaced with the bundled war by {@link #build()}
+     */
+    public BundledWarBuilder(File war) {
+        this.war = war;
+    }
+
+    /**
+     * Adds a file to the war, replacing an entry of the original war with the same name
+     *
+     * @param entryName path in the war, e.g. WEB-INF/bundledModules/module.omod
+     */
+    public BundledWarBuilder addFile(String entryName, File file) {
+        files.put(entryName, file);
+        return this;
+    }
+
+    public void build() throws IOException {
+        File tmpWar = new File(war.getPath() + ".tmp");
+        try {
+            try (ZipFile source = new ZipFile(war);
+                 ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmpWar), BUFFER_SIZE))) {
+                Set<String> written = new HashSet<>();
+                byte[] buffer = new byte[BUFFER_SIZE];
+
+                Enumeration<? extends ZipEntry> entries = source.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (files.containsKey(entry.getName()) || !written.add(entry.getName())) {
+                        continue;
+                    }
+                    ZipEntry copy = new ZipEntry(entry.getName());
+                    copy.setTime(ENTRY_TIME);
+                    if (entry.getMethod() == ZipEntry.STORED) {
+                        copy.setMethod(ZipEntry.STORED);
+                        copy.setSize(entry.getSize());
+                        copy.setCompressedSize(entry.getSize());
+                        copy.setCrc(entry.getCrc());
+                    }
+                    out.putNextEntry(copy);
+                    try (InputStream in = source.getInputStream(entry)) {
+                        copy(in, out, buffer);
+                    }
+                    out.closeEntry();
+                }
+
+                for (Map.Entry<String, File> file : files.entrySet()) {
+                    putDirectories(out, file.getKey(), written);
+                    putStoredFile(out, file.getKey(), file.getValue(), buffer);
+                }
+            }
+            Files.move(tmpWar.toPath(), war.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(tmpWar);
+        }
+    }
+
+    private void putDirectories(ZipOutputStream out, String entryName, Set<String> written) throws IOException {
+        int end = entryName.indexOf('/');
+        while (end >= 0) {
+            String directory = entryName.substring(0, end + 1);
+            if (written.add(directory)) {
+                ZipEntry entry = new ZipEntry(directory);
+                entry.setTime(ENTRY_TIME);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(0);
+                entry.setCrc(0);
+                out.putNextEntry(entry);
+                out.closeEntry();
+            }
+            end = entryName.indexOf('/', end + 1);
+        }
+    }
+
+    /**
+     * Stored entries need the size and CRC before the content, so the file is read twice. It is cheaper
+     * than compressing it again and the second read is usually served from the page cache.
+     */
+    private void putStoredFile(ZipOutputStream out, String entryName, File file, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        ZipEntry entry = new ZipEntry(entryName);
+        entry.setTime(ENTRY_TIME);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(file.length());
+        entry.setCompressedSize(file.length());
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        try (InputStream in = new FileInputStream(file)) {
+            copy(in, out, buffer);
+        }
+        out.closeEntry();
+    }
+
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
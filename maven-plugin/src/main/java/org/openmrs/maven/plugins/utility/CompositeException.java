@@ -26,11 +26,11 @@ public class CompositeException extends Exception {
         return builder.toString();
     }
 
-    public void add(String path, Exception e) {
+    public synchronized void add(String path, Exception e) {
         exceptions.put(path, e);
     }
 
-    public void checkAndThrow() throws MojoExecutionException{
+    public synchronized void checkAndThrow() throws MojoExecutionException{
         if(!exceptions.isEmpty()){
             throw new MojoExecutionException(getMessage(), this);
         }
@@ -0,0 +1,154 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.lang.ObjectUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps JDBC connections open for the whole goal, so that each step does not pay for a new handshake
+ * with a remote or dockerized DB. Closing a connection returns it to the pool, connections are closed
+ * with {@link #close()}. Connections are validated before reuse and not reused if their catalog was changed.
+ */
+public class ConnectionPool {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10;
+
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    private final int connectTimeout;
+
+    private final int socketTimeout;
+
+    private final Map<String, Deque<Connection>> idle = new HashMap<>();
+
+    private final List<Connection> opened = new ArrayList<>();
+
+    /**
+     * @param connectTimeout seconds to wait for a connection
+     * @param socketTimeout seconds to wait for a result of a statement, 0 to wait indefinitely
+     */
+    public ConnectionPool(int connectTimeout, int socketTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.socketTimeout = socketTimeout;
+    }
+
+    public synchronized Connection getConnection(String url, String user, String password) throws SQLException {
+        String key = url + "\n" + user + "\n" + password;
+        Deque<Connection> connections = idle.get(key);
+        while (connections != null && !connections.isEmpty()) {
+            Connection connection = connections.pop();
+            if (connection.isValid(VALIDATION_TIMEOUT)) {
+                return pooled(key, connection);
+            }
+            discard(connection);
+        }
+
+        Properties info = new Properties();
+        if (user != null) {
+            info.setProperty("user", user);
+        }
+        if (password != null) {
+            info.setProperty("password", password);
+        }
+        //timeouts are set per connection, not globally with DriverManager.setLoginTimeout
+        if (url.startsWith("jdbc:mysql:")) {
+            info.setProperty("connectTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(connectTimeout)));
+            info.setProperty("socketTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(socketTimeout)));
+        }
+        Connection connection = DriverManager.getConnection(url, info);
+        opened.add(connection);
+        return pooled(key, connection);
+    }
+
+    private synchronized void release(String key, Connection connection, String catalog) {
+        try {
+            if (connection.isClosed() || !ObjectUtils.equals(catalog, connection.getCatalog())) {
+                discard(connection);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+            return;
+        }
+        Deque<Connection> connections = idle.get(key);
+        if (connections == null) {
+            connections = new ArrayDeque<>();
+            idle.put(key, connections);
+        }
+        connections.push(connection);
+    }
+
+    /**
+     * Closes all connections opened by the pool
+     */
+    public synchronized void close() {
+        for (Connection connection : opened) {
+            closeQuietly(connection);
+        }
+        opened.clear();
+        idle.clear();
+    }
+
+    private Connection pooled(final String key, final Connection connection) throws SQLException {
+        final String catalog = connection.getCatalog();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class},
+                new InvocationHandler() {
+
+                    private boolean closed;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        switch (method.getName()) {
+                            case "close":
+                                if (!closed) {
+                                    closed = true;
+                                    release(key, connection, catalog);
+                                }
+                                return null;
+                            case "isClosed":
+                                return closed || connection.isClosed();
+                            default:
+                                if (closed) {
+                                    throw new SQLException("Connection is closed");
+                                }
+                                try {
+                                    return method.invoke(connection, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                        }
+                    }
+                });
+    }
+
+    private void discard(Connection connection) {
+        opened.remove(connection);
+        closeQuietly(connection);
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            //ignore
+        }
+    }
+}
@@ -4,14 +4,29 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class DBConnector {
     Connection conn;
     String dbName;
 
     public DBConnector(String url, String user, String pass, String dbName) throws SQLException {
-        DriverManager.setLoginTimeout(60);
-        this.conn = DriverManager.getConnection(url, user, pass);
+        Properties info = new Properties();
+        info.setProperty("user", user);
+        info.setProperty("password", pass);
+        if (url.startsWith("jdbc:mysql:")) {
+            info.setProperty("connectTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(60)));
+        }
+        this.conn = DriverManager.getConnection(url, info);
+        this.dbName = dbName;
+    }
+
+    /**
+     * Uses a connection from the pool, which is returned to the pool on {@link #close()}
+     */
+    public DBConnector(ConnectionPool pool, String url, String user, String pass, String dbName) throws SQLException {
+        this.conn = pool.getConnection(url, user, pass);
         this.dbName = dbName;
     }
 
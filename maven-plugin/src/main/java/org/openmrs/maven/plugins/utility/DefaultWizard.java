@@ -27,7 +27,6 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
-import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayDeque;
@@ -669,7 +668,11 @@ public class DefaultWizard implements Wizard {
             case(DB_OPTION_H2): {
                 server.setDbDriver(SDKConstants.DRIVER_H2);
                 if (server.getDbUri() == null) {
-                    server.setDbUri(SDKConstants.URI_H2);
+                    if (server.isDbEphemeral()) {
+                        server.setDbUri(String.format(SDKConstants.URI_H2_EPHEMERAL, getEphemeralH2Port(server)));
+                    } else {
+                        server.setDbUri(SDKConstants.URI_H2);
+                    }
                 }
                 server.setDbUser("root");
                 server.setDbPassword("root");
@@ -713,29 +716,39 @@ public class DefaultWizard implements Wizard {
             server.setDbDriver(SDKConstants.DRIVER_MYSQL);
         }
 
-        String dbUri = getDefaultDbUri(server, dockerHelper);
+        String image = StringUtils.defaultIfBlank(server.getDbImage(), DockerHelper.DOCKER_DEFAULT_DB_IMAGE);
+        String profile = StringUtils.defaultIfBlank(server.getDbProfile(), DockerHelper.DOCKER_DEFAULT_DB_PROFILE);
+        String container = dockerHelper.getSdkMySqlContainer(image, profile, server.isDbEphemeral());
+        String port = dockerHelper.getSdkMySqlPort(container);
+
+        String dbUri = getDefaultDbUri(server, dockerHelper, port);
         dbUri = addMySQLParamsIfMissing(dbUri);
 
         server.setDbUri(dbUri);
         server.setDbUser(DockerHelper.DOCKER_MYSQL_USERNAME);
         server.setDbPassword(DockerHelper.DOCKER_MYSQL_PASSWORD);
-        server.setContainerId(DockerHelper.DOCKER_DEFAULT_CONTAINER_ID);
+        server.setContainerId(container);
+        server.setDbImage(image);
+        server.setDbProfile(profile);
+
+        dockerHelper.createMySqlContainer(container, port, image, profile, null, server.isDbEphemeral());
+        dockerHelper.runDbContainer(server, server.getDbUri());
+    }
 
-        dockerHelper.createMySqlContainer(DockerHelper.DOCKER_DEFAULT_CONTAINER_ID, DockerHelper.DOCKER_MYSQL_PORT);
-        dockerHelper.runDbContainer(server.getContainerId(), server.getDbUri(), server.getDbUser(), server.getDbPassword());
+    /**
+     * In-memory H2 is served on the server port + 10000, so that it does not clash with other servers
+     */
+    private int getEphemeralH2Port(Server server) {
+        int serverPort = server.getPort() != null ? Integer.parseInt(server.getPort()) : 8080;
+        return serverPort + 10000;
     }
 
     private String getDefaultDbUri(Server server, DockerHelper dockerHelper) {
-        String dbUri = SDKConstants.URI_MYSQL.replace("3306", DockerHelper.DOCKER_MYSQL_PORT);
-        //In case of using the Docker Machine, which gets assigned an IP different than the host
-        if (dockerHelper.getDockerHost().startsWith("tcp://")) {
-            try {
-                URI uri = new URI(dockerHelper.getDockerHost());
-                dbUri = dbUri.replace("localhost", uri.getHost());
-            } catch (URISyntaxException e) {
-                throw new IllegalStateException(e);
-            }
-        }
+        return getDefaultDbUri(server, dockerHelper, DockerHelper.DOCKER_MYSQL_PORT);
+    }
+
+    private String getDefaultDbUri(Server server, DockerHelper dockerHelper, String port) {
+        String dbUri = dockerHelper.getDockerDbUri(port);
         dbUri = dbUri.replace(DBNAME_URL_VARIABLE, server.getServerId());
         return dbUri;
     }
@@ -861,7 +874,7 @@ public class DefaultWizard implements Wizard {
         server.setDbPassword(password);
         server.setContainerId(containerId);
 
-        dockerHelper.runDbContainer(containerId, server.getDbUri(), username, password);
+        dockerHelper.runDbContainer(server, server.getDbUri());
     }
 
     private String getDefaultUri(String dockerHost) {
@@ -1,7 +1,6 @@
 package org.openmrs.maven.plugins.utility;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.BuildPluginManager;
@@ -10,13 +9,16 @@ import org.apache.maven.project.MavenProject;
 import org.openmrs.maven.plugins.model.*;
 import org.twdata.maven.mojoexecutor.MojoExecutor;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.*;
+import static org.openmrs.maven.plugins.utility.MojoExecutions.executeMojo;
 
 public class DistroHelper {
     /**
@@ -39,11 +41,41 @@ public class DistroHelper {
      */
     Wizard wizard;
 
+    /**
+     * distro properties downloaded by this helper, by artifact, which may be shared with other helpers
+     */
+    private final Map<String, Properties> distroPropertiesCache;
+
+    /**
+     * Resolves distros to the local repository, if null distros are copied
+     */
+    ModuleInstaller moduleInstaller;
+
     public DistroHelper(MavenProject mavenProject, MavenSession mavenSession, BuildPluginManager pluginManager, Wizard wizard) {
+        this(mavenProject, mavenSession, pluginManager, wizard, null);
+    }
+
+    public DistroHelper(MavenProject mavenProject, MavenSession mavenSession, BuildPluginManager pluginManager, Wizard wizard,
+                        ModuleInstaller moduleInstaller) {
+        this(mavenProject, mavenSession, pluginManager, wizard, moduleInstaller, new HashMap<String, Properties>());
+    }
+
+    /**
+     * @param distroPropertiesCache cache of downloaded distro properties, must be thread safe if it is shared
+     *                              by helpers used concurrently
+     */
+    public DistroHelper(MavenProject mavenProject, MavenSession mavenSession, BuildPluginManager pluginManager, Wizard wizard,
+                        ModuleInstaller moduleInstaller, Map<String, Properties> distroPropertiesCache) {
         this.mavenProject = mavenProject;
         this.mavenSession = mavenSession;
         this.pluginManager = pluginManager;
         this.wizard = wizard;
+        this.moduleInstaller = moduleInstaller;
+        this.distroPropertiesCache = distroPropertiesCache;
+    }
+
+    public Map<String, Properties> getDistroPropertiesCache() {
+        return distroPropertiesCache;
     }
 
     /**
@@ -191,63 +223,133 @@ public class DistroHelper {
         return new File(path, artifact.getDestFileName());
     }
 
+    /**
+     * The entry is looked up in the central directory of the distro, without reading other entries.
+     *
+     * @return extracted temporary file, which is empty if there is no such file in the distro
+     */
     public File extractFileFromDistro(File path, Artifact artifact, String filename) throws MojoExecutionException {
-        File distroFile = downloadDistro(path, artifact);
-        File resultFile = null;
-
-        ZipFile zipFile = null;
+        File resultFile;
         try {
-            resultFile = File.createTempFile(filename, ".tmp");
-            zipFile = new ZipFile(distroFile);
-
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-            while(entries.hasMoreElements()){
-                ZipEntry zipEntry = entries.nextElement();
-                if(zipEntry.getName().equals(filename)){
-                    FileUtils.copyInputStreamToFile(zipFile.getInputStream(zipEntry), resultFile);
-                }
+            resultFile = File.createTempFile(getTempFilePrefix(filename), ".tmp");
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create temp file for " + filename, e);
+        }
+        try (DistroArchive archive = openDistro(path, artifact);
+             InputStream in = archive.getInputStream(filename)) {
+            if (in != null) {
+                FileUtils.copyInputStreamToFile(in, resultFile);
             }
-            zipFile.close();
         } catch (IOException e) {
-            throw new RuntimeException("Could not read " + distroFile.toString() + " to temp folder", e);
-        } finally {
-            IOUtils.closeQuietly(zipFile);
-            distroFile.delete();
+            resultFile.delete();
+            throw new RuntimeException("Could not read " + artifact + " to temp folder", e);
         }
         return resultFile;
     }
 
-    public DistroProperties downloadDistroProperties(File path, Artifact artifact) throws MojoExecutionException {
-        File file = downloadDistro(path, artifact);
-
-        DistroProperties distroProperties = null;
-        ZipFile zipFile = null;
-        try {
-            zipFile = new ZipFile(file);
-
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-            while(entries.hasMoreElements()){
-                ZipEntry zipEntry = entries.nextElement();
-                if("openmrs-distro.properties".equals(zipEntry.getName())){
-                    Properties properties = new Properties();
-                    properties.load(zipFile.getInputStream(zipEntry));
-                    distroProperties = new DistroProperties(properties);
+    /**
+     * Extracts distro properties and the SQL dump, opening the distro only once. The dump is looked up in the distro
+     * after the properties are read, so that it can be named by them. Entries are looked up in the central directory
+     * of the distro, without reading other entries.
+     *
+     * @param sqlScriptPath dump to extract, e.g. from -DdbSql, or null to extract the dump named by the distro properties
+     * @return extracted temporary files by name of the entry, i.e. {@link DistroProperties#DISTRO_FILE_NAME}
+     * and the dump without the classpath prefix, files which are not in the distro are omitted
+     */
+    public Map<String, File> extractFilesFromDistro(File path, Artifact artifact, String sqlScriptPath) throws MojoExecutionException {
+        Map<String, File> resultFiles = new HashMap<>();
+        try (DistroArchive archive = openDistro(path, artifact)) {
+            File propertiesFile = extractEntry(archive, DistroProperties.DISTRO_FILE_NAME);
+            if (propertiesFile != null) {
+                resultFiles.put(DistroProperties.DISTRO_FILE_NAME, propertiesFile);
+                if (sqlScriptPath == null) {
+                    sqlScriptPath = new DistroProperties(propertiesFile).getSqlScriptPath();
                 }
             }
+            //only scripts from the classpath may be packaged in the distro
+            if (sqlScriptPath != null && sqlScriptPath.startsWith(Server.CLASSPATH_SCRIPT_PREFIX)) {
+                String sqlScript = sqlScriptPath.substring(Server.CLASSPATH_SCRIPT_PREFIX.length());
+                File sqlFile = extractEntry(archive, sqlScript);
+                if (sqlFile != null) {
+                    resultFiles.put(sqlScript, sqlFile);
+                }
+            }
+        } catch (IOException e) {
+            for (File resultFile : resultFiles.values()) {
+                resultFile.delete();
+            }
+            throw new RuntimeException("Could not read " + artifact + " to temp folder", e);
+        }
+        return resultFiles;
+    }
 
-            zipFile.close();
+    /**
+     * @return extracted temporary file or null if there is no such entry
+     */
+    private static File extractEntry(DistroArchive archive, String filename) throws IOException {
+        try (InputStream in = archive.getInputStream(filename)) {
+            if (in == null) {
+                return null;
+            }
+            File resultFile = File.createTempFile(getTempFilePrefix(filename), ".tmp");
+            try {
+                FileUtils.copyInputStreamToFile(in, resultFile);
+            } catch (IOException e) {
+                resultFile.delete();
+                throw e;
+            }
+            return resultFile;
+        }
+    }
 
+    private static String getTempFilePrefix(String filename) {
+        //entries may be in directories and temp file prefix must have at least 3 characters
+        return StringUtils.rightPad(new File(filename).getName(), 3, '_');
+    }
 
+    /**
+     * Release distros are read from the local repository, SNAPSHOTs and distros without a local repository
+     * are copied to the path, so that the dependency plugin checks for their updates
+     */
+    private DistroArchive openDistro(File path, Artifact artifact) throws MojoExecutionException {
+        File localFile = moduleInstaller != null ? moduleInstaller.getLocalRepositoryFile(artifact) : null;
+        boolean copy = localFile == null || artifact.getVersion().endsWith("SNAPSHOT");
+        File distroFile = copy ? downloadDistro(path, artifact) : moduleInstaller.resolveArtifact(artifact);
+        try {
+            return new DistroArchive(new ZipFile(distroFile), copy ? distroFile : null);
         } catch (IOException e) {
-            throw new RuntimeException("Could not read " + file.toString(), e);
-        } finally {
-            IOUtils.closeQuietly(zipFile);
-            file.delete();
+            if (copy) {
+                distroFile.delete();
+            }
+            throw new RuntimeException("Could not read " + distroFile.toString(), e);
         }
+    }
 
-        return distroProperties;
+    /**
+     * Downloaded distro properties are cached by artifact, so that tasks sharing this helper,
+     * e.g. upgrades of many servers in a batch, download each distro only once.
+     * Downloads are synchronized, because the distro is downloaded to a fixed file name in given path.
+     */
+    public synchronized DistroProperties downloadDistroProperties(File path, Artifact artifact) throws MojoExecutionException {
+        String cacheKey = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion() + ":" + artifact.getType();
+        Properties cachedProperties = distroPropertiesCache.get(cacheKey);
+        if (cachedProperties != null && !artifact.getVersion().endsWith("SNAPSHOT")) {
+            //DistroProperties copies given properties, so the cached ones are never modified
+            return new DistroProperties(cachedProperties);
+        }
+
+        try (DistroArchive archive = openDistro(path, artifact);
+             InputStream in = archive.getInputStream(DistroProperties.DISTRO_FILE_NAME)) {
+            if (in == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            distroPropertiesCache.put(cacheKey, properties);
+            return new DistroProperties(properties);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + artifact, e);
+        }
     }
 
     public DistroProperties downloadDistroProperties(File serverPath, Server server) throws MojoExecutionException {
@@ -315,42 +417,35 @@ public class DistroHelper {
 
     static UpgradeDifferential calculateUpdateDifferential(List<Artifact> oldList, List<Artifact> newList){
         UpgradeDifferential upgradeDifferential = new UpgradeDifferential();
+        ArtifactIndex oldIndex = new ArtifactIndex(ArtifactIndex.BY_FILE_ID, oldList);
+        ArtifactIndex newIndex = new ArtifactIndex(ArtifactIndex.BY_FILE_ID);
         for(Artifact newListModule: newList){
-            boolean toAdd = true;
-            for(Artifact oldListModule : oldList){
-                if(isSameArtifact(oldListModule, newListModule)){
-                    if(isHigherVersion(oldListModule, newListModule)){
-                        if(isOpenmrsWebapp(newListModule)){
-                            upgradeDifferential.setPlatformArtifact(newListModule);
-                            upgradeDifferential.setPlatformUpgraded(true);
-                        } else {
-                            upgradeDifferential.putUpdateEntry(oldListModule, newListModule);
-                        }
-                    } else if(isLowerVersion(oldListModule, newListModule)){
-                        if(isOpenmrsWebapp(newListModule)){
-                            upgradeDifferential.setPlatformArtifact(newListModule);
-                            upgradeDifferential.setPlatformUpgraded(false);
-                        } else {
-                            upgradeDifferential.putDowngradeEntry(oldListModule, newListModule);
-                        }
-                    }
-                    toAdd = false;
-                    break;
-                }
+            ArtifactIndex.Entry next = newIndex.add(newListModule);
+            if (next.getArtifact() != newListModule) {
+                //the same artifact declared more than once, compare this occurrence with old version as well
+                next = newIndex.entryOf(newListModule);
             }
-            if(toAdd){
+            ArtifactIndex.Entry previous = oldIndex.get(next.getKey());
+            if(previous == null){
                 upgradeDifferential.addModuleToAdd(newListModule);
+            } else if(isHigherVersion(previous, next)){
+                if(isOpenmrsWebapp(newListModule)){
+                    upgradeDifferential.setPlatformArtifact(newListModule);
+                    upgradeDifferential.setPlatformUpgraded(true);
+                } else {
+                    upgradeDifferential.putUpdateEntry(previous.getArtifact(), newListModule);
+                }
+            } else if(isLowerVersion(previous, next)){
+                if(isOpenmrsWebapp(newListModule)){
+                    upgradeDifferential.setPlatformArtifact(newListModule);
+                    upgradeDifferential.setPlatformUpgraded(false);
+                } else {
+                    upgradeDifferential.putDowngradeEntry(previous.getArtifact(), newListModule);
+                }
             }
         }
         for(Artifact oldListModule: oldList){
-            boolean moduleNotFound = true;
-            for(Artifact newListModule: newList){
-                if(isSameArtifact(newListModule, oldListModule)){
-                    moduleNotFound = false;
-                    break;
-                }
-            }
-            if(moduleNotFound){
+            if(!newIndex.contains(oldListModule)){
                 if (isOpenmrsWebapp(oldListModule)) {
                     throw new IllegalStateException("You can delete only modules. Deleting openmrs core is not available");
                 } else {
@@ -365,25 +460,15 @@ public class DistroHelper {
         return Artifact.TYPE_WAR.equals(artifact.getType())&&SDKConstants.WEBAPP_ARTIFACT_ID.equals(artifact.getArtifactId());
     }
 
-    private static boolean isSameArtifact(Artifact left, Artifact right){
-        return getId(left.getDestFileName()).equals(getId(right.getDestFileName()));
-    }
-
-    private static String getId(String name) {
-        int index = name.indexOf('-');
-        if (index == -1) return name;
-        return name.substring(0, index);
-    }
-
     /**
      * checks if next artifact is higher version of the same artifact
      * returns true for equal version snapshots
      */
-    private static boolean isHigherVersion(Artifact previous, Artifact next){
+    private static boolean isHigherVersion(ArtifactIndex.Entry previous, ArtifactIndex.Entry next){
         if (!validateArtifactsToCompare(previous, next)) return false;
 
-        Version previousVersion = new Version(previous.getVersion());
-        Version nextVersion = new Version(next.getVersion());
+        Version previousVersion = previous.getVersion();
+        Version nextVersion = next.getVersion();
 
         if(nextVersion.higher(previousVersion)){
             return true;
@@ -393,11 +478,11 @@ public class DistroHelper {
             return false;
         }
     }
-    private static boolean isLowerVersion(Artifact previous, Artifact next) {
+    private static boolean isLowerVersion(ArtifactIndex.Entry previous, ArtifactIndex.Entry next) {
         if (!validateArtifactsToCompare(previous, next)) return false;
 
-        Version previousVersion = new Version(previous.getVersion());
-        Version nextVersion = new Version(next.getVersion());
+        Version previousVersion = previous.getVersion();
+        Version nextVersion = next.getVersion();
 
         if(nextVersion.lower(previousVersion)){
             return true;
@@ -408,14 +493,47 @@ public class DistroHelper {
         }
     }
 
-    private static boolean validateArtifactsToCompare(Artifact previous, Artifact next) {
+    private static boolean validateArtifactsToCompare(ArtifactIndex.Entry previous, ArtifactIndex.Entry next) {
         if(previous==null||next==null
-                ||previous.getArtifactId()==null||next.getArtifactId()==null
+                ||previous.getArtifact().getArtifactId()==null||next.getArtifact().getArtifactId()==null
                 ||previous.getVersion()==null||next.getVersion()==null
-                ||!isSameArtifact(previous, next)){
+                ||!previous.getKey().equals(next.getKey())){
             return false;
         }
         return true;
     }
 
+    /**
+     * Distro jar opened for reading entries, the copy of the distro is deleted when closed
+     */
+    private static class DistroArchive implements Closeable {
+
+        private final ZipFile zipFile;
+
+        private final File copy;
+
+        DistroArchive(ZipFile zipFile, File copy) {
+            this.zipFile = zipFile;
+            this.copy = copy;
+        }
+
+        /**
+         * @return stream of the entry or null if there is no such entry
+         */
+        InputStream getInputStream(String name) throws IOException {
+            ZipEntry entry = zipFile.getEntry(name);
+            return entry != null ? zipFile.getInputStream(entry) : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                zipFile.close();
+            } finally {
+                if (copy != null) {
+                    copy.delete();
+                }
+            }
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package org.openmrs.maven.plugins.utility;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.BuildPluginManager;
@@ -13,12 +15,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+import static org.twdata.maven.mojoexecutor.MojoExecutor.Element;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.artifactId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.element;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.executeMojo;
+import static org.openmrs.maven.plugins.utility.MojoExecutions.executeMojo;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.executionEnvironment;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.goal;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.groupId;
@@ -31,6 +38,10 @@ public class DockerHelper {
     public static final String DOCKER_MYSQL_PORT = "3308";
     public static final String DOCKER_MYSQL_USERNAME = "root";
     public static final String DOCKER_MYSQL_PASSWORD = "Admin123";
+    public static final String DOCKER_DEFAULT_DB_PROFILE = "default";
+    public static final String DOCKER_DEFAULT_DB_IMAGE = "mysql:5.6";
+    private static final String DOCKER_MYSQL_PORT_KEY_PREFIX = "dockerMysqlPort.";
+    private static final String DOCKER_REGISTRY_MIRROR_KEY = "dockerRegistryMirror";
     private static final String DOCKER_HOST_KEY = "dockerHost";
     public static final String DEFAULT_DOCKER_HOST_UNIX_SOCKET = "unix:///var/run/docker.sock";
     public static final String DEFAULT_HOST_DOCKER_FOR_WINDOWS = "tcp://127.0.0.1:2375/";
@@ -100,13 +111,120 @@ public class DockerHelper {
         saveSdkProperties(sdkProperties);
     }
 
+    /**
+     * The SDK DB container is shared by servers, so servers which use other DB image or profile get their own container
+     *
+     * @return name of the SDK DB container with given image and profile
+     */
+    public String getSdkMySqlContainer(String image, String profile) {
+        return getSdkMySqlContainer(image, profile, false);
+    }
+
+    /**
+     * @param tmpfs true if data directory of the container is kept in memory
+     * @return name of the SDK DB container with given image, profile and storage
+     */
+    public String getSdkMySqlContainer(String image, String profile, boolean tmpfs) {
+        String container;
+        if (isDefaultImageAndProfile(image, profile)) {
+            container = DOCKER_DEFAULT_CONTAINER_ID;
+        } else {
+            container = "openmrs-sdk-" + StringUtils.defaultIfBlank(image, DOCKER_DEFAULT_DB_IMAGE).replaceAll("[^a-zA-Z0-9.]+", "-")
+                    + "-" + StringUtils.defaultIfBlank(profile, DOCKER_DEFAULT_DB_PROFILE);
+        }
+        return tmpfs ? container + "-tmpfs" : container;
+    }
+
+    /**
+     * Ports of SDK DB containers other than the default one are assigned once and kept in sdk.properties
+     *
+     * @return port exposed by the SDK DB container with given name
+     */
+    public synchronized String getSdkMySqlPort(String container) {
+        if (DOCKER_DEFAULT_CONTAINER_ID.equals(container)) {
+            return DOCKER_MYSQL_PORT;
+        }
+        Properties sdkProperties = getSdkProperties();
+        String port = sdkProperties.getProperty(DOCKER_MYSQL_PORT_KEY_PREFIX + container);
+        if (port == null) {
+            int maxPort = Integer.parseInt(DOCKER_MYSQL_PORT);
+            for (String key : sdkProperties.stringPropertyNames()) {
+                if (key.startsWith(DOCKER_MYSQL_PORT_KEY_PREFIX)) {
+                    maxPort = Math.max(maxPort, Integer.parseInt(sdkProperties.getProperty(key)));
+                }
+            }
+            port = String.valueOf(maxPort + 1);
+            sdkProperties.setProperty(DOCKER_MYSQL_PORT_KEY_PREFIX + container, port);
+            saveSdkProperties(sdkProperties);
+        }
+        return port;
+    }
+
+    /**
+     * @return JDBC uri of MySQL exposed by docker on given port, with @DBNAME@ placeholder
+     */
+    public String getDockerDbUri(String port) {
+        String dbUri = SDKConstants.URI_MYSQL.replace("3306", port);
+        //In case of using the Docker Machine, which gets assigned an IP different than the host
+        String dockerHost = getDockerHost();
+        if (dockerHost != null && dockerHost.startsWith("tcp://")) {
+            try {
+                URI uri = new URI(dockerHost);
+                dbUri = dbUri.replace("localhost", uri.getHost());
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return dbUri;
+    }
+
+    private boolean isDefaultImageAndProfile(String image, String profile) {
+        return (StringUtils.isBlank(image) || DOCKER_DEFAULT_DB_IMAGE.equals(image))
+                && (StringUtils.isBlank(profile) || DOCKER_DEFAULT_DB_PROFILE.equals(profile));
+    }
+
     public void createMySqlContainer(String container, String port) throws MojoExecutionException {
+        createMySqlContainer(container, port, null, null);
+    }
+
+    /**
+     * @param image MySQL or MariaDB image with tag, mysql:5.6 if null
+     * @param profile settings of mysqld, e.g. dev-fast or prod-like, stock settings if null
+     */
+    public void createMySqlContainer(String container, String port, String image, String profile) throws MojoExecutionException {
+        createMySqlContainer(container, port, image, profile, null, false);
+    }
+
+    /**
+     * @param snapshotScript SQL script imported into a cached snapshot image, from which the container is created
+     *                       instead of an empty DB, ignored if null
+     * @param tmpfs if true, data directory is kept in memory and lost when the container stops
+     */
+    public void createMySqlContainer(String container, String port, String image, String profile, File snapshotScript,
+                                     boolean tmpfs) throws MojoExecutionException {
         String dockerHost = getDockerHost();
 
         dockerHost = promptForDockerHostIfMissing(dockerHost);
 
         Artifact sdkInfo = SDKConstants.getSDKInfo();
 
+        List<Element> elements = new ArrayList<>();
+        elements.add(element("dockerHost", dockerHost));
+        elements.add(element("port", port));
+        elements.add(element("container", container));
+        elements.add(element("image", StringUtils.defaultIfBlank(image, DOCKER_DEFAULT_DB_IMAGE)));
+        elements.add(element("profile", StringUtils.defaultIfBlank(profile, DOCKER_DEFAULT_DB_PROFILE)));
+        if (snapshotScript != null) {
+            elements.add(element("snapshotScript", snapshotScript.getAbsolutePath()));
+        }
+        if (tmpfs) {
+            elements.add(element("tmpfs", "true"));
+        }
+        String registryMirror = getSdkProperties().getProperty(DOCKER_REGISTRY_MIRROR_KEY);
+        if (StringUtils.isNotBlank(registryMirror)) {
+            elements.add(element("registryMirror", registryMirror));
+        }
+
         wizard.showMessage("Preparing '" + container + "' DB docker container...");
         executeMojo(
                 plugin(
@@ -115,10 +233,7 @@ public class DockerHelper {
                         version(sdkInfo.getVersion())
                 ),
                 goal("create-mysql"),
-                configuration(
-                        element("dockerHost", dockerHost),
-                        element("port", port),
-                        element("container", container)),
+                configuration(elements.toArray(new Element[0])),
                 executionEnvironment(mavenProject, mavenSession, pluginManager)
         );
 
@@ -136,10 +251,54 @@ public class DockerHelper {
     }
 
     public void runDbContainer(String container, String dbUri, String username, String password) throws MojoExecutionException {
+        runDbContainer(container, null, null, dbUri, username, password);
+    }
+
+    /**
+     * Runs server's DB container. The id to which the container is resolved is cached in server properties
+     * and checked first next time, which is much faster than looking up the container on hosts with many containers.
+     * The server is saved if it exists and the id changed.
+     */
+    public void runDbContainer(Server server, String dbUri) throws MojoExecutionException {
+        File containerIdFile = null;
+        try {
+            containerIdFile = File.createTempFile("sdk-container-id", ".txt");
+            runDbContainer(server.getContainerId(), server.getResolvedContainerId(), containerIdFile,
+                    dbUri, server.getDbUser(), server.getDbPassword());
+
+            String resolvedId = FileUtils.readFileToString(containerIdFile).trim();
+            if (!resolvedId.isEmpty() && !resolvedId.equals(server.getResolvedContainerId())) {
+                server.setResolvedContainerId(resolvedId);
+                if (Server.hasServerConfig(server.getServerDirectory())) {
+                    server.save();
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read the id of the '" + server.getContainerId() + "' container", e);
+        } finally {
+            FileUtils.deleteQuietly(containerIdFile);
+        }
+    }
+
+    private void runDbContainer(String container, String cachedContainerId, File containerIdFile, String dbUri,
+                                String username, String password) throws MojoExecutionException {
         Artifact sdkInfo = SDKConstants.getSDKInfo();
         String dockerHost = getDockerHost();
         dockerHost = promptForDockerHostIfMissing(dockerHost);
 
+        List<Element> elements = new ArrayList<>();
+        elements.add(element("dockerHost", dockerHost));
+        elements.add(element("container", container));
+        elements.add(element("username", username));
+        elements.add(element("password", password));
+        elements.add(element("dbUri", dbUri));
+        if (StringUtils.isNotBlank(cachedContainerId)) {
+            elements.add(element("cachedContainerId", cachedContainerId));
+        }
+        if (containerIdFile != null) {
+            elements.add(element("containerIdFile", containerIdFile.getAbsolutePath()));
+        }
+
         wizard.showMessage("Starting '" + container + "' DB docker container...");
         executeMojo(
                 plugin(
@@ -148,12 +307,7 @@ public class DockerHelper {
                         version(sdkInfo.getVersion())
                 ),
                 goal("run-db"),
-                configuration(
-                        element("dockerHost", dockerHost),
-                        element("container", container),
-                        element("username", username),
-                        element("password", password),
-                        element("dbUri", dbUri)),
+                configuration(elements.toArray(new Element[0])),
                 executionEnvironment(mavenProject, mavenSession, pluginManager)
         );
     }
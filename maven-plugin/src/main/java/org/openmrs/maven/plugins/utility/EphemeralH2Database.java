@@ -0,0 +1,150 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory H2 database of an ephemeral server. It is served over TCP by the SDK, so that OpenMRS connects to it
+ * regardless of H2 classes bundled with the webapp. The database is loaded from a SQL snapshot file on start
+ * and written back to it on stop, so that the server survives restarts without disk I/O while it runs.
+ */
+public class EphemeralH2Database {
+
+    private static final Pattern EPHEMERAL_URI = Pattern.compile("^jdbc:h2:tcp://localhost:(\\d+)/mem:([^;]+)");
+
+    private final File snapshot;
+
+    private final int port;
+
+    private final String dbName;
+
+    private final String username;
+
+    private final String password;
+
+    private final Wizard wizard;
+
+    private org.h2.tools.Server tcpServer;
+
+    private Connection connection;
+
+    private Thread shutdownHook;
+
+    /**
+     * @param snapshot file from which the database is loaded and to which it is saved
+     * @param dbUri uri in format of {@link SDKConstants#URI_H2_EPHEMERAL} with the database name
+     * @param wizard used to report loading and saving of the database
+     */
+    public EphemeralH2Database(File snapshot, String dbUri, String username, String password, Wizard wizard) {
+        Matcher matcher = EPHEMERAL_URI.matcher(dbUri);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Not an ephemeral H2 uri: " + dbUri);
+        }
+        this.snapshot = snapshot;
+        this.port = Integer.parseInt(matcher.group(1));
+        this.dbName = matcher.group(2);
+        this.username = username;
+        this.password = password;
+        this.wizard = wizard;
+    }
+
+    public static boolean isEphemeralUri(String dbUri) {
+        return dbUri != null && EPHEMERAL_URI.matcher(dbUri).find();
+    }
+
+    public void start() throws MojoExecutionException {
+        try {
+            tcpServer = org.h2.tools.Server.createTcpServer("-tcpPort", String.valueOf(port), "-tcpDaemon").start();
+            //the database must not be closed by H2 on exit before it is saved by the shutdown hook
+            connection = DriverManager.getConnection("jdbc:h2:mem:" + dbName + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                    username, password);
+            if (snapshot.exists()) {
+                long start = System.currentTimeMillis();
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("RUNSCRIPT FROM " + quote(snapshot));
+                }
+                wizard.showMessage(String.format("Loaded in-memory database from %s in %.1fs", snapshot,
+                        (System.currentTimeMillis() - start) / 1000.0));
+            }
+        } catch (SQLException e) {
+            stopQuietly();
+            throw new MojoExecutionException("Failed to start in-memory database on port " + port, e);
+        }
+
+        //the server is usually stopped with Ctrl+C
+        shutdownHook = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    save();
+                } catch (MojoExecutionException e) {
+                    wizard.showError(e.getMessage());
+                }
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Saves the database to the snapshot file and stops it
+     */
+    public void stop() throws MojoExecutionException {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            //JVM is shutting down, the hook saves the database
+            return;
+        }
+        save();
+    }
+
+    private synchronized void save() throws MojoExecutionException {
+        if (connection == null) {
+            return;
+        }
+        File tmpSnapshot = new File(snapshot.getPath() + ".tmp");
+        try {
+            snapshot.getParentFile().mkdirs();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SCRIPT TO " + quote(tmpSnapshot));
+            }
+            //the previous snapshot is kept if saving fails
+            Files.move(tmpSnapshot.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException e) {
+            throw new MojoExecutionException("Failed to save in-memory database to " + snapshot, e);
+        } finally {
+            FileUtils.deleteQuietly(tmpSnapshot);
+            stopQuietly();
+        }
+    }
+
+    private void stopQuietly() {
+        if (connection != null) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            } catch (SQLException e) {
+                //already closed
+            }
+            connection = null;
+        }
+        if (tcpServer != null) {
+            tcpServer.stop();
+            tcpServer = null;
+        }
+    }
+
+    private static String quote(File file) {
+        return "'" + file.getAbsolutePath().replace("'", "''") + "'";
+    }
+}
@@ -18,7 +18,7 @@ import static org.twdata.maven.mojoexecutor.MojoExecutor.Element;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.artifactId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.element;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.executeMojo;
+import static org.openmrs.maven.plugins.utility.MojoExecutions.executeMojo;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.executionEnvironment;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.goal;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.groupId;
@@ -32,6 +32,8 @@ public class ModuleInstaller {
 
     private static final String GOAL_UNPACK = "unpack";
 
+    private static final String GOAL_GET = "get";
+
     MavenProject mavenProject;
 
     MavenSession mavenSession;
@@ -83,6 +85,55 @@ public class ModuleInstaller {
         prepareModule(artifact, outputDir, goal);
     }
 
+    /**
+     * Resolves artifact to the local repository, without copying it anywhere
+     *
+     * @return artifact file in the local repository
+     * @throws MojoExecutionException if artifact could not be resolved
+     */
+    public File resolveArtifact(Artifact artifact) throws MojoExecutionException {
+        File file = getLocalRepositoryFile(artifact);
+        if (file == null || !file.isFile()) {
+            String coordinates = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion() + ":" + artifact.getType();
+            executeMojo(
+                    plugin(
+                            groupId(SDKConstants.PLUGIN_DEPENDENCIES_GROUP_ID),
+                            artifactId(SDKConstants.PLUGIN_DEPENDENCIES_ARTIFACT_ID),
+                            version(SDKConstants.PLUGIN_DEPENDENCIES_VERSION)
+                    ),
+                    goal(GOAL_GET),
+                    configuration(
+                            element("artifact", coordinates),
+                            element("transitive", "false")
+                    ),
+                    executionEnvironment(mavenProject, mavenSession, pluginManager)
+            );
+            file = getLocalRepositoryFile(artifact);
+            if (file == null || !file.isFile()) {
+                throw new MojoExecutionException("Failed to resolve " + coordinates + " to the local repository");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @return file of given artifact in the local repository, it may not exist
+     */
+    public File getLocalRepositoryFile(Artifact artifact) {
+        if (mavenSession == null || mavenSession.getLocalRepository() == null) {
+            return null;
+        }
+        return new File(mavenSession.getLocalRepository().getBasedir(), getRepositoryPath(artifact));
+    }
+
+    /**
+     * @return path of given artifact relative to the root of a repository with default layout
+     */
+    public static String getRepositoryPath(Artifact artifact) {
+        return artifact.getGroupId().replace('.', '/') + "/" + artifact.getArtifactId() + "/" + artifact.getVersion() + "/"
+                + artifact.getArtifactId() + "-" + artifact.getVersion() + "." + artifact.getType();
+    }
+
     /**
      * Extract selected Artifact list
      * @param artifacts
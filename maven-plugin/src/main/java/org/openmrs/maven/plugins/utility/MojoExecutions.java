@@ -0,0 +1,26 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.twdata.maven.mojoexecutor.MojoExecutor;
+
+/**
+ * Executes mojos one at a time. Executions share the Maven session and the plugin manager, which are not
+ * thread safe, and plugins such as dependency keep state in shared directories, so tasks running concurrently,
+ * e.g. in the batch goal, must not execute mojos at the same time.
+ */
+public class MojoExecutions {
+
+    private static final Object LOCK = new Object();
+
+    private MojoExecutions() {
+    }
+
+    public static void executeMojo(Plugin plugin, String goal, Xpp3Dom configuration,
+                                   MojoExecutor.ExecutionEnvironment env) throws MojoExecutionException {
+        synchronized (LOCK) {
+            MojoExecutor.executeMojo(plugin, goal, configuration, env);
+        }
+    }
+}
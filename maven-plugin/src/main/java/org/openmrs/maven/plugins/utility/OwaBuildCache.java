@@ -0,0 +1,237 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Makes OWA builds incremental. Node modules are fingerprinted by package.json, lock files and the node toolchain,
+ * so that npm install is skipped if they did not change. Build output is cached in the SDK home by a hash of
+ * the project sources, so that an unchanged OWA is restored from the cache instead of being built again.
+ */
+public class OwaBuildCache {
+
+    public static final String CACHE_DIR = "owa-build-cache";
+
+    public static final String OUTPUT_DIR = "dist";
+
+    private static final String NODE_MODULES = "node_modules";
+
+    private static final String FINGERPRINT_FILE = ".openmrs-sdk-fingerprint";
+
+    private static final List<String> DEPENDENCY_FILES = Arrays.asList("package.json", "package-lock.json",
+            "npm-shrinkwrap.json", "yarn.lock");
+
+    /**
+     * Directories with sources of OWAs never have these names
+     */
+    private static final Set<String> EXCLUDED_DIRS = new HashSet<>(Arrays.asList(NODE_MODULES, ".git"));
+
+    /**
+     * Output, toolchain and IDE directories in the root of the project
+     */
+    private static final Set<String> EXCLUDED_ROOT_DIRS = new HashSet<>(Arrays.asList(OUTPUT_DIR, "node", "target", ".idea"));
+
+    private static final int MAX_ENTRIES = 20;
+
+    private final File cacheDir;
+
+    public OwaBuildCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * @param toolchain identifies node and npm used to install modules, since native modules depend on them
+     */
+    public String getDependenciesFingerprint(File projectDir, String toolchain) throws MojoExecutionException {
+        MessageDigest digest = newDigest();
+        update(digest, toolchain);
+        for (String dependencyFile : DEPENDENCY_FILES) {
+            File file = new File(projectDir, dependencyFile);
+            if (file.isFile()) {
+                update(digest, dependencyFile);
+                update(digest, file);
+            }
+        }
+        return toHex(digest);
+    }
+
+    public boolean isNodeModulesUpToDate(File projectDir, String fingerprint) {
+        File file = new File(projectDir, NODE_MODULES + File.separator + FINGERPRINT_FILE);
+        try {
+            return file.isFile() && new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim().equals(fingerprint);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void saveNodeModulesFingerprint(File projectDir, String fingerprint) throws MojoExecutionException {
+        File nodeModules = new File(projectDir, NODE_MODULES);
+        if (!nodeModules.isDirectory()) {
+            return;
+        }
+        File file = new File(nodeModules, FINGERPRINT_FILE);
+        try {
+            Files.write(file.toPath(), fingerprint.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write " + file, e);
+        }
+    }
+
+    /**
+     * Hashes paths and contents of all source files in a stable order
+     */
+    public String getSourceHash(File projectDir, String dependenciesFingerprint) throws MojoExecutionException {
+        final Path root = projectDir.toPath();
+        final TreeMap<String, File> files = new TreeMap<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = dir.getFileName() != null ? dir.getFileName().toString() : "";
+                    if (EXCLUDED_DIRS.contains(name) || (root.equals(dir.getParent()) && EXCLUDED_ROOT_DIRS.contains(name))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        files.put(root.relativize(file).toString().replace(File.separatorChar, '/'), file.toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to list sources of " + projectDir, e);
+        }
+
+        MessageDigest digest = newDigest();
+        update(digest, dependenciesFingerprint);
+        for (String path : files.keySet()) {
+            File file = files.get(path);
+            update(digest, path + "\u0000" + file.length());
+            update(digest, file);
+        }
+        return toHex(digest);
+    }
+
+    /**
+     * @return true if the output was restored from the cache
+     */
+    public boolean restoreOutput(File projectDir, String sourceHash) throws MojoExecutionException {
+        File entry = new File(cacheDir, sourceHash);
+        if (!entry.isDirectory()) {
+            return false;
+        }
+        File output = new File(projectDir, OUTPUT_DIR);
+        try {
+            FileUtils.deleteDirectory(output);
+            FileUtils.copyDirectory(entry, output);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to restore " + output + " from " + entry, e);
+        }
+        //recently used entries are pruned last
+        entry.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Copies the output to a temporary directory first and renames it, so that a failed copy never leaves
+     * a partial entry in the cache
+     */
+    public void saveOutput(File projectDir, String sourceHash) throws MojoExecutionException {
+        File output = new File(projectDir, OUTPUT_DIR);
+        File entry = new File(cacheDir, sourceHash);
+        if (!output.isDirectory() || entry.isDirectory()) {
+            return;
+        }
+        File tmpEntry = null;
+        try {
+            cacheDir.mkdirs();
+            tmpEntry = Files.createTempDirectory(cacheDir.toPath(), sourceHash).toFile();
+            FileUtils.copyDirectory(output, tmpEntry);
+            Files.move(tmpEntry.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (!entry.isDirectory()) {
+                throw new MojoExecutionException("Failed to cache " + output, e);
+            }
+            //saved by a concurrent build
+        } finally {
+            FileUtils.deleteQuietly(tmpEntry);
+        }
+        prune();
+    }
+
+    private void prune() {
+        File[] entries = cacheDir.listFiles();
+        if (entries == null || entries.length <= MAX_ENTRIES) {
+            return;
+        }
+        Arrays.sort(entries, Collections.reverseOrder(new Comparator<File>() {
+
+            @Override
+            public int compare(File file, File other) {
+                return Long.compare(file.lastModified(), other.lastModified());
+            }
+        }));
+        for (int i = MAX_ENTRIES; i < entries.length; i++) {
+            FileUtils.deleteQuietly(entries[i]);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static void update(MessageDigest digest, File file) throws MojoExecutionException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read " + file, e);
+        }
+    }
+
+    private static String toHex(MessageDigest digest) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -6,6 +6,7 @@ import com.github.zafarkhaja.semver.Version;
 import com.github.zafarkhaja.semver.expr.Expression;
 import com.github.zafarkhaja.semver.expr.ExpressionParser;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -16,9 +17,9 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.openmrs.maven.plugins.model.NodeDistro;
 import org.openmrs.maven.plugins.model.PackageJson;
+import org.openmrs.maven.plugins.model.Server;
 import org.twdata.maven.mojoexecutor.MojoExecutor;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -27,14 +28,20 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.artifactId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.element;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.executeMojo;
+import static org.openmrs.maven.plugins.utility.MojoExecutions.executeMojo;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.executionEnvironment;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.goal;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.groupId;
@@ -54,6 +61,12 @@ public class OwaHelper {
 	public static final String NODE_VERSION_KEY = "node";
 	public static final String NPM_VERSION_KEY = "npm";
 
+	private static final String TOOLCHAINS_DIR = "toolchains";
+	private static final String NODE_DIST_INDEX_URL = "https://nodejs.org/dist/index.json";
+	private static final String NODE_DIST_INDEX_FILENAME = "node-dist-index.json";
+	private static final long NODE_DIST_INDEX_MAX_AGE = TimeUnit.DAYS.toMillis(1);
+	private static final Pattern TOOLCHAIN_NAME = Pattern.compile("^node-v([^-]+)(?:-npm-(.+))?$");
+
 	private MavenSession session;
 
 	private File installationDir;
@@ -64,12 +77,38 @@ public class OwaHelper {
 
 	private Wizard wizard;
 
+	private File toolchainsDir;
+
+	/**
+	 * toolchain from the shared store used by local npm commands, if null node is expected in the project
+	 */
+	private File toolchainDir;
+
+	private ToolchainProbeCache probeCache;
+
 	//enable chaining
 	public OwaHelper setInstallationDir(File installationDir) {
 		this.installationDir = installationDir;
 		return this;
 	}
 
+	//enable chaining
+	public OwaHelper setToolchainsDir(File toolchainsDir) {
+		this.toolchainsDir = toolchainsDir;
+		return this;
+	}
+
+	/**
+	 * @return directory of the store with node and npm toolchains shared by all projects
+	 */
+	public File getToolchainsDir() {
+		return toolchainsDir != null ? toolchainsDir : new File(Server.getServersPathFile(), TOOLCHAINS_DIR);
+	}
+
+	public File getToolchainDir() {
+		return toolchainDir;
+	}
+
 	public OwaHelper(){}
 
 	public OwaHelper(MavenSession session, MavenProject mavenProject, BuildPluginManager pluginManager, Wizard wizard) {
@@ -97,6 +136,7 @@ public class OwaHelper {
 			runYeomanGenerator(useSystemNode, owaDir);
 
 			if (!useSystemNode) {
+				linkToolchain(owaDir);
 				addHelperScripts(owaDir.getAbsolutePath());
 			}
 		} catch (IOException e) {
@@ -119,7 +159,8 @@ public class OwaHelper {
 		if (useSystemNode) {
 			runSystemNpmCommandWithArgs(Arrays.asList("install", "-g", "yo", "generator-openmrs-owa", "--no-optional"));
 		} else {
-			runLocalNpmCommandWithArgs(Arrays.asList("install", "-g", "yo", "generator-openmrs-owa", "--no-optional"), owaDir.getAbsolutePath());
+			runLocalNpmCommandWithArgs(Arrays.asList("install", "-g", "yo", "generator-openmrs-owa", "--no-optional"),
+					getLocalInstallDirectory(owaDir).getAbsolutePath());
 		}
 	}
 
@@ -158,6 +199,31 @@ public class OwaHelper {
 		return owaDir;
 	}
 
+	private File getLocalInstallDirectory(File projectDir) {
+		return toolchainDir != null ? toolchainDir : projectDir;
+	}
+
+	/**
+	 * Links node of the toolchain into the project for helper scripts. Falls back to a copy,
+	 * if symbolic links are not supported, e.g. on Windows without admin rights.
+	 */
+	private void linkToolchain(File projectDir) {
+		File link = new File(projectDir, "node");
+		if (toolchainDir == null || link.exists()) {
+			return;
+		}
+		File node = new File(toolchainDir, "node");
+		try {
+			Files.createSymbolicLink(link.toPath(), node.toPath());
+		} catch (IOException | UnsupportedOperationException e) {
+			try {
+				FileUtils.copyDirectory(node, link);
+			} catch (IOException copyException) {
+				throw new RuntimeException("Could not link node from " + node + " to OWA directory", copyException);
+			}
+		}
+	}
+
 	private void addHelperScripts(String path) {
 		File npmCmd = new File(path, "npm.cmd");
 		URL npmCmdSrc = getClass().getClassLoader().getResource("npm.cmd");
@@ -177,7 +243,7 @@ public class OwaHelper {
 	private void runYeomanGenerator(boolean useSystemNode, File directory) throws InterruptedException, IOException {
 		ProcessBuilder builder = new ProcessBuilder()
 				.directory(directory)
-				.command(getYoExecutable(useSystemNode, directory))
+				.command(getYoExecutable(useSystemNode, getLocalInstallDirectory(directory)))
 				.redirectErrorStream(true)
 				.inheritIO();
 
@@ -186,6 +252,9 @@ public class OwaHelper {
 
 	}
 
+	/**
+	 * @param directory installation directory of local node, to which yo is installed globally
+	 */
 	private String[] getYoExecutable(boolean useSystemNode, File directory) {
 		if (useSystemNode) {
 			if (SystemUtils.IS_OS_WINDOWS) {
@@ -195,9 +264,11 @@ public class OwaHelper {
 			}
 		} else {
 			if (SystemUtils.IS_OS_WINDOWS) {
-				return new String[] {new File(directory, "node\\node.exe").getAbsolutePath(), "node\\node_modules\\yo\\lib\\cli.js", "openmrs-owa"};
+				return new String[] {new File(directory, "node\\node.exe").getAbsolutePath(),
+						new File(directory, "node\\node_modules\\yo\\lib\\cli.js").getAbsolutePath(), "openmrs-owa"};
 			} else {
-				return new String[] {"node/node", "lib/node_modules/yo/lib/cli.js", "openmrs-owa"};
+				return new String[] {new File(directory, "node/node").getAbsolutePath(),
+						new File(directory, "lib/node_modules/yo/lib/cli.js").getAbsolutePath(), "openmrs-owa"};
 			}
 		}
 	}
@@ -217,35 +288,77 @@ public class OwaHelper {
 
 	public String getSystemNpmVersion() {
 		String npmExecutable = getNpmSystemExecutable();
-		String npm = runProcessAndGetFirstResponseLine(npmExecutable, "-v", true);
+		String npm = probeVersion(npmExecutable, findOnPath(npmExecutable));
 		return StringUtils.isNotBlank(npm) ? npm : null;
 	}
 
 	public String getSystemNodeVersion() {
-		String node = runProcessAndGetFirstResponseLine("node", "-v", true);
+		String node = probeVersion("node", findOnPath(SystemUtils.IS_OS_WINDOWS ? "node.exe" : "node"));
 		return formatNodeVersion(node);
 	}
 
 	public String getProjectNodeVersion() {
 		String node;
 		if (SystemUtils.IS_OS_WINDOWS) {
-			node = runProcessAndGetFirstResponseLine("node\\node.exe", "-v", true);
+			node = probeVersion("node\\node.exe", new File("node\\node.exe"));
 		} else {
-			node = runProcessAndGetFirstResponseLine("node/node", "-v", true);
+			node = probeVersion("node/node", new File("node/node"));
 		}
 		return formatNodeVersion(node);
 	}
 
 	public String getProjectNpmVersion() {
+		//helper scripts run npm-cli.js, which is replaced when npm is upgraded
+		File npmCli = new File("node/node_modules/npm/bin/npm-cli.js");
 		String npm;
 		if (SystemUtils.IS_OS_WINDOWS) {
-			npm = runProcessAndGetFirstResponseLine("node\\npm.cmd", "-v", true);
+			npm = probeVersion("node\\npm.cmd", npmCli);
 		} else {
-			npm = runProcessAndGetFirstResponseLine("node/npm", "-v", true);
+			npm = probeVersion("node/npm", npmCli);
 		}
 		return StringUtils.isNotBlank(npm) ? npm : null;
 	}
 
+	/**
+	 * Versions are cached by the executable, so that warm runs do not spawn node or npm just to get a version
+	 *
+	 * @param executable file identifying the version of the command, if null the command is always run
+	 */
+	private String probeVersion(String command, @Nullable File executable) {
+		if (executable == null) {
+			return runProcessAndGetFirstResponseLine(command, "-v", true);
+		}
+		String version = getProbeCache().get(executable);
+		if (version == null) {
+			version = runProcessAndGetFirstResponseLine(command, "-v", true);
+			if (StringUtils.isNotBlank(version)) {
+				getProbeCache().put(executable, version);
+			}
+		}
+		return version;
+	}
+
+	private ToolchainProbeCache getProbeCache() {
+		if (probeCache == null) {
+			probeCache = new ToolchainProbeCache(new File(getToolchainsDir(), ToolchainProbeCache.FILE_NAME));
+		}
+		return probeCache;
+	}
+
+	private static File findOnPath(String executable) {
+		String path = System.getenv("PATH");
+		if (path == null) {
+			return null;
+		}
+		for (String directory : path.split(File.pathSeparator)) {
+			File file = new File(directory, executable);
+			if (file.isFile() && file.canExecute()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
 	private String formatNodeVersion(String node) {
 		if (StringUtils.isNotBlank(node)) {
 			if (node.startsWith("v")) {
@@ -310,21 +423,98 @@ public class OwaHelper {
 		}
 	}
 
+	/**
+	 * The index of node distributions is cached in the toolchains store for a day.
+	 * If it cannot be refreshed, the cached one is used.
+	 */
 	public List<NodeDistro> getNodeDistros() {
-		Gson gson = new Gson();
-		HttpURLConnection conn;
+		File index = new File(getToolchainsDir(), NODE_DIST_INDEX_FILENAME);
+		if (!index.isFile() || System.currentTimeMillis() - index.lastModified() > NODE_DIST_INDEX_MAX_AGE) {
+			try {
+				downloadNodeDistIndex(index);
+			} catch (IOException | RuntimeException e) {
+				if (!index.isFile()) {
+					throw new IllegalStateException("Failed to fetch node distributions", e);
+				}
+				wizard.showMessage("Failed to fetch node distributions, using the list cached in " + index);
+			}
+		}
+		return readNodeDistros(index);
+	}
+
+	private void downloadNodeDistIndex(File index) throws IOException {
+		index.getParentFile().mkdirs();
+		File tmpIndex = File.createTempFile(NODE_DIST_INDEX_FILENAME, ".tmp", index.getParentFile());
 		try {
-			URL url = new URL("https://nodejs.org/dist/index.json");
-			conn = (HttpURLConnection) url.openConnection();
+			HttpURLConnection conn = (HttpURLConnection) new URL(NODE_DIST_INDEX_URL).openConnection();
 			conn.setRequestMethod("GET");
-			BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-			NodeDistro[] result = gson.fromJson(rd, NodeDistro[].class);
+			try (InputStream in = conn.getInputStream()) {
+				Files.copy(in, tmpIndex.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			//a broken download must not replace the cached index
+			readNodeDistros(tmpIndex);
+			Files.move(tmpIndex.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			FileUtils.deleteQuietly(tmpIndex);
+		}
+	}
+
+	private List<NodeDistro> readNodeDistros(File index) {
+		try (Reader reader = Files.newBufferedReader(index.toPath(), StandardCharsets.UTF_8)) {
+			NodeDistro[] result = new Gson().fromJson(reader, NodeDistro[].class);
+			if (result == null) {
+				throw new IllegalStateException("No node distributions in " + index);
+			}
 			return new ArrayList<>(Arrays.asList(result));
-		} catch (IOException e) {
-			throw new IllegalStateException("Failed to fetch node distributions", e);
+		} catch (IOException | JsonParseException e) {
+			throw new IllegalStateException("Failed to read node distributions from " + index, e);
 		}
 	}
 
+	/**
+	 * @return installed toolchain with the highest node version satisfying given versions or null if there is none
+	 */
+	public File findInstalledToolchain(SemVersion node, SemVersion npm) {
+		File[] toolchains = getToolchainsDir().listFiles();
+		if (toolchains == null) {
+			return null;
+		}
+		File result = null;
+		Version resultVersion = null;
+		for (File toolchain : toolchains) {
+			Matcher matcher = TOOLCHAIN_NAME.matcher(toolchain.getName());
+			if (!matcher.matches() || !isToolchainInstalled(toolchain)) {
+				continue;
+			}
+			String nodeVersion = matcher.group(1);
+			String npmVersion = matcher.group(2);
+			Version version;
+			try {
+				if (!node.satisfies(nodeVersion) || (npm != null && (npmVersion == null || !npm.satisfies(npmVersion)))) {
+					continue;
+				}
+				version = Version.valueOf(nodeVersion);
+			} catch (RuntimeException e) {
+				//not a semantic version
+				continue;
+			}
+			if (resultVersion == null || version.greaterThan(resultVersion)) {
+				result = toolchain;
+				resultVersion = version;
+			}
+		}
+		return result;
+	}
+
+	private boolean isToolchainInstalled(File toolchain) {
+		File node = new File(toolchain, SystemUtils.IS_OS_WINDOWS ? "node/node.exe" : "node/node");
+		return node.isFile() && new File(toolchain, "node/node_modules/npm/bin/npm-cli.js").isFile();
+	}
+
+	private static String getToolchainName(String nodeVersion, String npmVersion) {
+		return "node-v" + nodeVersion + (npmVersion != null ? "-npm-" + npmVersion : "");
+	}
+
 	public static class SemVersion {
 		Expression expression;
 		String rawVersion;
@@ -448,7 +638,7 @@ public class OwaHelper {
 	}
 
 	public void runLocalNpmCommandWithArgs(List<String> arguments) throws MojoExecutionException {
-		runLocalNpmCommandWithArgs(arguments, null);
+		runLocalNpmCommandWithArgs(arguments, toolchainDir != null ? toolchainDir.getAbsolutePath() : null);
 	}
 
 	public void runLocalNpmCommandWithArgs(List<String> arguments, String installDir) throws MojoExecutionException {
@@ -562,7 +752,20 @@ public class OwaHelper {
 		return useSystemNode;
 	}
 
-	public void installLocalNodeAndNpm(SemVersion node, SemVersion npm, String installDirectory) throws MojoExecutionException {
+	/**
+	 * Node and npm are installed once to the shared toolchains store and referenced by projects.
+	 * Installed toolchains are looked up first, so that node distributions are listed only for a new toolchain.
+	 *
+	 * @param projectDirectory directory of the project, which uses the toolchain
+	 */
+	public void installLocalNodeAndNpm(SemVersion node, SemVersion npm, String projectDirectory) throws MojoExecutionException {
+		File installedToolchain = findInstalledToolchain(node, npm);
+		if (installedToolchain != null) {
+			wizard.showMessage("Using node and npm from " + installedToolchain);
+			toolchainDir = installedToolchain;
+			return;
+		}
+
 		String nodeVersion;
 		String npmVersion;
 
@@ -583,7 +786,9 @@ public class OwaHelper {
 			throw new MojoExecutionException("Could not find a matching node version.");
 		}
 
-		runInstallLocalNodeAndNpm(nodeVersion, npmVersion, installDirectory);
+		toolchainDir = new File(getToolchainsDir(), getToolchainName(nodeVersion, npmVersion));
+		wizard.showMessage("Installing node " + nodeVersion + " and npm " + npmVersion + " to " + toolchainDir);
+		runInstallLocalNodeAndNpm(nodeVersion, npmVersion, toolchainDir.getAbsolutePath());
 	}
 
 	public void runInstallLocalNodeAndNpm(String nodeVersion, String npmVersion, String installDirectory) throws MojoExecutionException {
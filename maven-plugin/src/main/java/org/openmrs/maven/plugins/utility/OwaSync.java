@@ -0,0 +1,194 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pushes webpack output of an OWA to the owa directory of a running server. Only changed files are copied
+ * and each one is renamed into place, so that the browser never loads a half-written bundle. HTML files
+ * are pushed last, so that they never reference bundles which are not there yet.
+ * <p>
+ * The output is polled rather than watched with a WatchService, since webpack may delete and recreate
+ * the output directory and the WatchService falls back to slow polling on some platforms anyway.
+ * A change is pushed once the output stops changing between two polls.
+ */
+public class OwaSync implements Closeable {
+
+    public static final long DEFAULT_POLL_INTERVAL = 250;
+
+    private static final String TMP_SUFFIX = ".sdk-tmp";
+
+    private final File sourceDir;
+
+    private final File targetDir;
+
+    private final Wizard wizard;
+
+    private final long pollInterval;
+
+    private Thread thread;
+
+    public OwaSync(File sourceDir, File targetDir, Wizard wizard, long pollInterval) {
+        this.sourceDir = sourceDir;
+        this.targetDir = targetDir;
+        this.wizard = wizard;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Starts pushing changes in a background thread until {@link #close()}
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "owa-sync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void watch() {
+        Map<String, String> pushed = null;
+        Map<String, String> previous = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            Map<String, String> current = listFiles(sourceDir);
+            //empty output is being rebuilt and must not wipe out the deployed OWA
+            if (!current.isEmpty() && !current.equals(pushed) && current.equals(previous)) {
+                try {
+                    long start = System.currentTimeMillis();
+                    int changed = sync();
+                    if (changed > 0) {
+                        long end = System.currentTimeMillis();
+                        wizard.showMessage(String.format("Pushed %d changed file(s) to %s in %d ms, %d ms after the output changed",
+                                changed, targetDir, end - start, end - getLastModified(current)));
+                    }
+                    pushed = current;
+                } catch (IOException e) {
+                    //webpack may be writing the output again, it is pushed on the next change
+                    wizard.showMessage("Failed to push OWA to " + targetDir + ": " + e.getMessage());
+                }
+            }
+            previous = current;
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies new and changed files to the target directory and removes files, which are no longer in the source
+     *
+     * @return number of pushed and removed files
+     */
+    public int sync() throws IOException {
+        List<String> paths = new ArrayList<>(listFiles(sourceDir).keySet());
+        List<String> html = new ArrayList<>();
+        int changed = 0;
+        for (String path : paths) {
+            if (path.endsWith(".html")) {
+                html.add(path);
+            } else if (push(path)) {
+                changed++;
+            }
+        }
+        for (String path : html) {
+            if (push(path)) {
+                changed++;
+            }
+        }
+
+        List<String> removed = new ArrayList<>(listFiles(targetDir).keySet());
+        removed.removeAll(paths);
+        for (String path : removed) {
+            File file = new File(targetDir, path);
+            Files.deleteIfExists(file.toPath());
+            deleteEmptyParents(file.getParentFile());
+            changed++;
+        }
+        return changed;
+    }
+
+    private boolean push(String path) throws IOException {
+        File source = new File(sourceDir, path);
+        File target = new File(targetDir, path);
+        if (target.isFile() && target.length() == source.length() && target.lastModified() == source.lastModified()) {
+            return false;
+        }
+        target.getParentFile().mkdirs();
+        File tmpTarget = new File(target.getPath() + TMP_SUFFIX);
+        try {
+            Files.copy(source.toPath(), tmpTarget.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(tmpTarget.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(tmpTarget);
+        }
+        return true;
+    }
+
+    private void deleteEmptyParents(File dir) {
+        while (dir != null && !dir.equals(targetDir)) {
+            String[] children = dir.list();
+            if (children == null || children.length > 0 || !dir.delete()) {
+                return;
+            }
+            dir = dir.getParentFile();
+        }
+    }
+
+    /**
+     * @return size and modification time of each file by its relative path
+     */
+    private static Map<String, String> listFiles(File dir) {
+        Map<String, String> files = new TreeMap<>();
+        listFiles(dir, "", files);
+        return files;
+    }
+
+    private static void listFiles(File dir, String prefix, Map<String, String> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            String path = prefix + child.getName();
+            if (child.isDirectory()) {
+                listFiles(child, path + "/", files);
+            } else if (!path.endsWith(TMP_SUFFIX)) {
+                files.put(path, child.length() + ":" + child.lastModified());
+            }
+        }
+    }
+
+    private static long getLastModified(Map<String, String> snapshot) {
+        long lastModified = 0;
+        for (String stamp : snapshot.values()) {
+            lastModified = Math.max(lastModified, Long.parseLong(stamp.substring(stamp.indexOf(':') + 1)));
+        }
+        return lastModified;
+    }
+}
@@ -62,6 +62,8 @@ public class SDKConstants {
     public static final String URI_MYSQL_DOCKER = "jdbc:mysql://%s:3306/@DBNAME@";
     public static final String URI_POSTGRESQL = "jdbc:postgresql://localhost:5740/@DBNAME@";
     public static final String URI_H2 = "jdbc:h2:@APPLICATIONDATADIR@/database/@DBNAME@;AUTO_RECONNECT=TRUE;DB_CLOSE_DELAY=-1";
+    // in-memory H2 served by the SDK on the given port, see EphemeralH2Database
+    public static final String URI_H2_EPHEMERAL = "jdbc:h2:tcp://localhost:%d/mem:@DBNAME@;DB_CLOSE_DELAY=-1";
     // dbDriver class for different db
     public static final String DRIVER_MYSQL = "com.mysql.jdbc.Driver";
     public static final String DRIVER_POSTGRESQL = "org.postgresql.Driver";
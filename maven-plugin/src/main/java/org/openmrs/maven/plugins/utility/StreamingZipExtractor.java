@@ -0,0 +1,168 @@
+package org.openmrs.maven.plugins.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extracts a zip while it is being read, e.g. downloaded, without saving the archive first. Entries are read
+ * sequentially, but small ones are buffered and written to disk in parallel, which pays off on slow disks.
+ * Entries with paths outside of the output directory are rejected.
+ */
+public class StreamingZipExtractor {
+
+    /**
+     * Larger entries are written directly from the stream
+     */
+    private static final int MAX_BUFFERED_ENTRY_SIZE = 8 * 1024 * 1024;
+
+    private static final int MAX_BUFFERED_SIZE = 64 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int threads;
+
+    /**
+     * @param threads number of threads writing entries, 1 to write them on the calling thread only
+     */
+    public StreamingZipExtractor(int threads) {
+        this.threads = threads;
+    }
+
+    public StreamingZipExtractor() {
+        this(Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Extracts the zip to the output directory. The stream is not closed.
+     */
+    public void extract(InputStream in, File outputDir) throws IOException {
+        final Path outputPath = outputDir.getCanonicalFile().toPath();
+        outputDir.mkdirs();
+
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        final Semaphore buffered = new Semaphore(MAX_BUFFERED_SIZE);
+        List<Future<Void>> writes = new ArrayList<>();
+        try {
+            ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                final File file = resolve(outputPath, entry.getName());
+                if (entry.isDirectory()) {
+                    file.mkdirs();
+                    continue;
+                }
+                file.getParentFile().mkdirs();
+
+                if (executor == null || entry.getSize() > MAX_BUFFERED_ENTRY_SIZE) {
+                    write(null, zip, file);
+                    continue;
+                }
+
+                //sizes are usually unknown until the entry is read, since zips are streamed with data descriptors
+                buffered.acquire(MAX_BUFFERED_ENTRY_SIZE);
+                final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                boolean complete = false;
+                try {
+                    complete = read(zip, content, MAX_BUFFERED_ENTRY_SIZE);
+                    if (!complete) {
+                        write(content, zip, file);
+                    }
+                } finally {
+                    //the rest is released once the buffered entry is written
+                    buffered.release(complete ? MAX_BUFFERED_ENTRY_SIZE - content.size() : MAX_BUFFERED_ENTRY_SIZE);
+                }
+                if (!complete) {
+                    continue;
+                }
+                writes.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws IOException {
+                        try {
+                            write(content, null, file);
+                        } finally {
+                            buffered.release(content.size());
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> write : writes) {
+                write.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting to " + outputDir, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to extract to " + outputDir, e.getCause());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Protects against zip-slip, i.e. entries like '../../file' or absolute paths
+     */
+    static File resolve(Path outputPath, String entryName) throws IOException {
+        Path path = outputPath.resolve(entryName).normalize();
+        if (!path.startsWith(outputPath)) {
+            throw new IOException("Entry " + entryName + " is outside of " + outputPath);
+        }
+        return path.toFile();
+    }
+
+    /**
+     * Reads at most one byte over the limit
+     *
+     * @return true if the whole stream fit into the limit
+     */
+    private static boolean read(InputStream in, ByteArrayOutputStream out, int limit) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer, 0, Math.min(buffer.length, limit + 1 - out.size()))) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param head already read content or null
+     * @param in the rest of the content, which is not closed, or null
+     */
+    private static void write(ByteArrayOutputStream head, InputStream in, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+            if (head != null) {
+                head.writeTo(out);
+            }
+            if (in != null) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Remembers versions reported by node and npm executables, so that they are not spawned on every build
+ * just to print a version. Entries are keyed by the canonical path of the executable and invalidated
+ * when its modification time or size changes, e.g. after an upgrade.
+ */
+public class ToolchainProbeCache {
+
+    public static final String FILE_NAME = "toolchain-probes.properties";
+
+    private static final String SEPARATOR = ":";
+
+    private final File file;
+
+    private Properties probes;
+
+    /**
+     * @param file properties file with cached versions, created on the first {@link #put(File, String)}
+     */
+    public ToolchainProbeCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return version probed from the executable, if it was not modified since, otherwise null
+     */
+    public synchronized String get(File executable) {
+        if (!executable.isFile()) {
+            return null;
+        }
+        String value = getProbes().getProperty(getKey(executable));
+        String stamp = getStamp(executable) + SEPARATOR;
+        if (value == null || !value.startsWith(stamp)) {
+            return null;
+        }
+        return value.substring(stamp.length());
+    }
+
+    public synchronized void put(File executable, String version) {
+        if (!executable.isFile()) {
+            return;
+        }
+        getProbes().setProperty(getKey(executable), getStamp(executable) + SEPARATOR + version);
+        save();
+    }
+
+    private Properties getProbes() {
+        if (probes == null) {
+            probes = new Properties();
+            if (file.isFile()) {
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    probes.load(in);
+                } catch (IOException | IllegalArgumentException e) {
+                    //the cache is rebuilt by probing again
+                    probes.clear();
+                }
+            }
+        }
+        return probes;
+    }
+
+    /**
+     * The file is replaced atomically, so that concurrent builds never read a partially written cache.
+     * Failures are ignored, since the cache only saves process spawns.
+     */
+    private void save() {
+        File tmpFile = null;
+        try {
+            file.getParentFile().mkdirs();
+            tmpFile = File.createTempFile(FILE_NAME, ".tmp", file.getParentFile());
+            try (OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+                probes.store(out, null);
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            //ignore
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    private static String getKey(File executable) {
+        try {
+            return executable.getCanonicalPath();
+        } catch (IOException e) {
+            return executable.getAbsolutePath();
+        }
+    }
+
+    private static String getStamp(File executable) {
+        File target = new File(getKey(executable));
+        return target.lastModified() + SEPARATOR + target.length();
+    }
+}
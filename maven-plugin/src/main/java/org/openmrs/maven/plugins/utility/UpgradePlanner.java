@@ -0,0 +1,116 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.openmrs.maven.plugins.model.Artifact;
+import org.openmrs.maven.plugins.model.DistroProperties;
+import org.openmrs.maven.plugins.model.InstallStatistics;
+import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.model.UpgradeDifferential;
+import org.openmrs.maven.plugins.model.UpgradePlan;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Computes what an upgrade of a server would change, without changing the server.
+ * Artifact sizes are taken from the local repository or, if artifact is not there, from remote repositories
+ */
+public class UpgradePlanner {
+
+    private static final int REMOTE_TIMEOUT_MILLIS = 10000;
+
+    private final MavenProject mavenProject;
+
+    private final ModuleInstaller moduleInstaller;
+
+    public UpgradePlanner(MavenProject mavenProject, ModuleInstaller moduleInstaller) {
+        this.mavenProject = mavenProject;
+        this.moduleInstaller = moduleInstaller;
+    }
+
+    public UpgradePlan plan(Server server, DistroProperties distroProperties, UpgradeDifferential upgradeDifferential) throws MojoExecutionException {
+        UpgradePlan plan = new UpgradePlan(server.getServerId(), distroProperties.getName(), distroProperties.getVersion());
+        try (CloseableHttpClient httpClient = createHttpClient()) {
+            if (upgradeDifferential.getPlatformArtifact() != null) {
+                Artifact webapp = new Artifact(SDKConstants.WEBAPP_ARTIFACT_ID, upgradeDifferential.getPlatformArtifact().getVersion(),
+                        Artifact.GROUP_WEB, Artifact.TYPE_WAR);
+                Artifact currentWebapp = new Artifact(SDKConstants.WEBAPP_ARTIFACT_ID, server.getPlatformVersion(),
+                        Artifact.GROUP_WEB, Artifact.TYPE_WAR);
+                String action = upgradeDifferential.isPlatformUpgraded() ? UpgradePlan.ACTION_UPDATE : UpgradePlan.ACTION_DOWNGRADE;
+                plan.addItem(createInstallItem(httpClient, action, currentWebapp, webapp));
+            }
+            for (Map.Entry<Artifact, Artifact> entry : upgradeDifferential.getUpdateOldToNewMap().entrySet()) {
+                plan.addItem(createInstallItem(httpClient, UpgradePlan.ACTION_UPDATE, entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<Artifact, Artifact> entry : upgradeDifferential.getDowngradeNewToOldMap().entrySet()) {
+                plan.addItem(createInstallItem(httpClient, UpgradePlan.ACTION_DOWNGRADE, entry.getKey(), entry.getValue()));
+            }
+            for (Artifact artifact : upgradeDifferential.getModulesToAdd()) {
+                plan.addItem(createInstallItem(httpClient, UpgradePlan.ACTION_ADD, null, artifact));
+            }
+            for (Artifact artifact : upgradeDifferential.getModulesToDelete()) {
+                plan.addItem(new UpgradePlan.Item(UpgradePlan.ACTION_DELETE, artifact, null));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to plan upgrade: " + e.getMessage(), e);
+        }
+
+        InstallStatistics installStatistics = InstallStatistics.loadStatistics();
+        plan.setEstimate(installStatistics.getBytesPerSecond(), installStatistics.estimateMillis(plan.getBytesToInstall()));
+        return plan;
+    }
+
+    private UpgradePlan.Item createInstallItem(CloseableHttpClient httpClient, String action, Artifact current, Artifact target) {
+        UpgradePlan.Item item = new UpgradePlan.Item(action, current, target);
+        File localFile = moduleInstaller.getLocalRepositoryFile(target);
+        if (localFile != null && localFile.isFile()) {
+            item.setInLocalRepository(true);
+            item.setSize(localFile.length());
+        } else {
+            item.setSize(getRemoteSize(httpClient, target));
+        }
+        return item;
+    }
+
+    /**
+     * @return size of artifact declared by the first remote repository which has it or null if unknown
+     */
+    private Long getRemoteSize(CloseableHttpClient httpClient, Artifact artifact) {
+        if (mavenProject == null || mavenProject.getRemoteArtifactRepositories() == null) {
+            return null;
+        }
+        for (ArtifactRepository repository : mavenProject.getRemoteArtifactRepositories()) {
+            HttpHead head = new HttpHead(repository.getUrl().replaceAll("/$", "") + "/" + ModuleInstaller.getRepositoryPath(artifact));
+            try {
+                HttpResponse response = httpClient.execute(head);
+                Header contentLength = response.getFirstHeader("Content-Length");
+                if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK && contentLength != null) {
+                    return Long.valueOf(contentLength.getValue());
+                }
+            } catch (IOException | NumberFormatException e) {
+                //try next repository
+            } finally {
+                head.releaseConnection();
+            }
+        }
+        return null;
+    }
+
+    private CloseableHttpClient createHttpClient() {
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(REMOTE_TIMEOUT_MILLIS)
+                .setSocketTimeout(REMOTE_TIMEOUT_MILLIS)
+                .build();
+        return HttpClients.custom().setDefaultRequestConfig(config).useSystemProperties().build();
+    }
+}
@@ -0,0 +1,96 @@
+package org.openmrs.maven.plugins;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+import org.openmrs.maven.plugins.utility.DistroHelper;
+import org.openmrs.maven.plugins.utility.ModuleInstaller;
+import org.openmrs.maven.plugins.utility.Wizard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchTest {
+
+    private static final List<String> SERVERS = Arrays.asList("refapp", "test-1", "test-2", "platform");
+
+    @Test
+    public void selectServers_shouldSelectAllServers() throws MojoExecutionException {
+        assertThat(Batch.selectServers("all", SERVERS), contains("refapp", "test-1", "test-2", "platform"));
+    }
+
+    @Test
+    public void selectServers_shouldSelectServersMatchingPatternsOnce() throws MojoExecutionException {
+        assertThat(Batch.selectServers("test-*, test-1,platform", SERVERS), contains("test-1", "test-2", "platform"));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void selectServers_shouldFailForUnknownServer() throws MojoExecutionException {
+        Batch.selectServers("refapp,unknown", SERVERS);
+    }
+
+    @Test
+    public void executeTask_shouldRunEachServerWithOwnWizardAndSharedCaches() throws Exception {
+        Wizard wizard = mock(Wizard.class);
+        when(wizard.promptForMissingValueWithOptions(anyString(), anyString(), anyString(), anyListOf(String.class))).thenReturn("reset");
+        when(wizard.promptForValueIfMissingWithDefault(anyString(), anyString(), anyString(), anyString())).thenReturn("test-*,platform");
+        when(wizard.getListOfServers()).thenReturn(SERVERS);
+
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        final List<AbstractTask> tasks = Collections.synchronizedList(new ArrayList<AbstractTask>());
+        Batch batch = new Batch() {
+
+            @Override
+            AbstractTask newServerTask(AbstractTask parent, final String serverId) {
+                AbstractTask serverTask = new AbstractTask(parent) {
+
+                    @Override
+                    public void executeTask() throws MojoExecutionException {
+                        executed.add(serverId);
+                        if ("platform".equals(serverId)) {
+                            throw new MojoExecutionException("Failed to reset " + serverId);
+                        }
+                    }
+                };
+                tasks.add(serverTask);
+                return serverTask;
+            }
+        };
+        batch.wizard = wizard;
+        batch.distroHelper = mock(DistroHelper.class);
+        batch.moduleInstaller = mock(ModuleInstaller.class);
+
+        try {
+            batch.executeTask();
+            fail("Failure of platform should be reported");
+        } catch (MojoExecutionException e) {
+            assertThat(executed, containsInAnyOrder("test-1", "test-2", "platform"));
+        }
+
+        assertThat(tasks.get(0).wizard, not(sameInstance(wizard)));
+        assertThat(tasks.get(0).wizard, not(sameInstance(tasks.get(1).wizard)));
+        assertThat(tasks.get(0).distroHelper, not(sameInstance(batch.distroHelper)));
+        assertThat(tasks.get(0).distroHelper.getDistroPropertiesCache(), sameInstance(tasks.get(1).distroHelper.getDistroPropertiesCache()));
+        assertThat(tasks.get(0).moduleInstaller, sameInstance(batch.moduleInstaller));
+        assertThat(tasks.get(1).moduleInstaller, sameInstance(batch.moduleInstaller));
+        verify(wizard, never()).setAnswers(any(ArrayDeque.class));
+        verify(wizard, never()).setInteractiveMode(anyBoolean());
+    }
+}
@@ -1,8 +1,10 @@
 package org.openmrs.maven.plugins;
 
 import com.google.gson.Gson;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,9 +18,11 @@ import org.openmrs.maven.plugins.utility.OwaHelper.SemVersion;
 import org.openmrs.maven.plugins.utility.SDKConstants;
 import org.openmrs.maven.plugins.utility.Wizard;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -29,6 +33,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,8 +52,10 @@ public class BuildOwaTest {
     private List<String> npmInstallArgs;
     private List<String> npmRunBuildArgs;
 
+    private File toolchainsDir;
+
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
         npmInstallArgs = new ArrayList<>();
         npmInstallArgs.add("install");
         npmInstallArgs.add("--no-optional");
@@ -60,6 +67,14 @@ public class BuildOwaTest {
         build.wizard = wizard;
         build.owaHelper = owaHelper;
         owaHelper.setWizard(wizard);
+
+        toolchainsDir = Files.createTempDirectory("toolchains").toFile();
+        owaHelper.setToolchainsDir(toolchainsDir);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(toolchainsDir);
     }
 
     @Test
@@ -252,7 +267,43 @@ public class BuildOwaTest {
 
         build.buildNpmProject();
 
-        verify(build.owaHelper).runInstallLocalNodeAndNpm("7.4.0", "3.10.10", null);
+        verify(build.owaHelper).runInstallLocalNodeAndNpm("7.4.0", "3.10.10",
+                new File(toolchainsDir, "node-v7.4.0-npm-3.10.10").getAbsolutePath());
+        assertThat(build.owaHelper.getToolchainDir(), is(new File(toolchainsDir, "node-v7.4.0-npm-3.10.10")));
+    }
+
+    @Test
+    public void buildOwa_shouldReuseInstalledToolchain() throws Exception {
+        build.npmVersion = null;
+        build.nodeVersion = null;
+
+        when(build.owaHelper.getSystemNodeVersion()).thenReturn(null);
+        when(build.owaHelper.getSystemNpmVersion()).thenReturn(null);
+
+        doReturn(SemVersion.valueOf("7.*")).when(build.owaHelper).getProjectNodeFromPackageJson();
+        doReturn(SemVersion.valueOf("3.*")).when(build.owaHelper).getProjectNpmFromPackageJson();
+
+        createToolchain("node-v7.2.0-npm-3.10.9");
+        createToolchain("node-v7.3.0-npm-3.10.10");
+        createToolchain("node-v8.0.0-npm-5.0.0");
+        new File(toolchainsDir, "node-v7.4.0-npm-3.10.10").mkdirs();
+
+        Mockito.doNothing().when(build.owaHelper).runLocalNpmCommandWithArgs(anyList());
+
+        build.buildNpmProject();
+
+        verify(build.owaHelper, never()).getNodeDistros();
+        verify(build.owaHelper, never()).runInstallLocalNodeAndNpm(anyString(), anyString(), anyString());
+        assertThat(build.owaHelper.getToolchainDir(), is(new File(toolchainsDir, "node-v7.3.0-npm-3.10.10")));
+    }
+
+    private void createToolchain(String name) throws Exception {
+        File toolchain = new File(toolchainsDir, name);
+        for (String path : Arrays.asList("node/node", "node/node.exe", "node/node_modules/npm/bin/npm-cli.js")) {
+            File file = new File(toolchain, path);
+            file.getParentFile().mkdirs();
+            file.createNewFile();
+        }
     }
 
     private List<NodeDistro> getNodeDistVersionsViaLocalResources() throws Exception {
@@ -0,0 +1,110 @@
+package org.openmrs.maven.plugins;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.maven.plugins.model.Artifact;
+import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.utility.SDKConstants;
+import org.openmrs.maven.plugins.utility.VersionsHelper;
+import org.openmrs.maven.plugins.utility.Wizard;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class DeployTest {
+
+    private Deploy deploy;
+
+    private Wizard wizard;
+
+    @Before
+    public void setUp() throws Exception {
+        deploy = new Deploy();
+        wizard = mock(Wizard.class);
+        deploy.wizard = wizard;
+        setField("dryRun", true);
+    }
+
+    @Test
+    public void executeTask_shouldFailForPlatformInDryRunBeforeLoadingServer() throws Exception {
+        setField("platform", "2.1.0");
+
+        try {
+            deploy.executeTask();
+            fail("Platform deployment must not run in dry run mode");
+        } catch (MojoExecutionException e) {
+            verify(wizard, never()).promptForExistingServerIdIfMissing(anyString());
+        }
+    }
+
+    @Test
+    public void executeTask_shouldFailForOwaInDryRun() throws Exception {
+        setField("owa", "conceptdictionary:1.0.0");
+
+        try {
+            deploy.executeTask();
+            fail("OWA deployment must not run in dry run mode");
+        } catch (MojoExecutionException e) {
+            verify(wizard, never()).promptForExistingServerIdIfMissing(anyString());
+        }
+    }
+
+    @Test
+    public void deployModule_shouldNotTouchServerInDryRun() throws Exception {
+        Server server = mock(Server.class);
+
+        try {
+            deploy.deployModule("org.openmrs.module", "webservices.rest-omod", "2.20.0", server);
+            fail("Module deployment must not run in dry run mode");
+        } catch (MojoExecutionException e) {
+            verifyZeroInteractions(server);
+        }
+    }
+
+    @Test
+    public void deployModule_shouldKeepRollbackIfUpdateIsDeclined() throws Exception {
+        setField("dryRun", false);
+        deploy.versionsHelper = mock(VersionsHelper.class);
+        when(wizard.promptForValueIfMissingWithDefault(anyString(), anyString(), anyString(), anyString())).thenReturn(Artifact.GROUP_MODULE);
+        when(wizard.promptForValueIfMissing(anyString(), anyString())).thenReturn("webservices.rest");
+        when(wizard.promptForMissingValueWithOptions(anyString(), anyString(), anyString(), anyListOf(String.class), anyString(), anyString()))
+                .thenReturn("2.20.0");
+        when(wizard.promptYesNo(anyString())).thenReturn(false);
+
+        File serverDir = Files.createTempDirectory("deploy").toFile();
+        try {
+            File modules = new File(serverDir, SDKConstants.OPENMRS_SERVER_MODULES);
+            modules.mkdirs();
+            new File(modules, "webservices.rest-2.19.0.omod").createNewFile();
+            File rollbackDir = new File(serverDir, "upgrade-rollback");
+            rollbackDir.mkdirs();
+
+            deploy.deployModule(Artifact.GROUP_MODULE, "webservices.rest", "2.20.0", Server.createServer(serverDir));
+
+            assertThat(rollbackDir.isDirectory(), is(true));
+            assertThat(new File(modules, "webservices.rest-2.19.0.omod").exists(), is(true));
+        } finally {
+            FileUtils.deleteQuietly(serverDir);
+        }
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = Deploy.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(deploy, value);
+    }
+}
@@ -0,0 +1,90 @@
+package org.openmrs.maven.plugins;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.maven.plugins.model.Server;
+import org.openmrs.maven.plugins.utility.SDKConstants;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+
+public class ServerUpgraderTest {
+
+    private File serverDir;
+
+    private File rollbackDir;
+
+    private Server server;
+
+    private ServerUpgrader serverUpgrader;
+
+    @Before
+    public void setUp() throws Exception {
+        serverDir = Files.createTempDirectory("server-upgrader").toFile();
+        rollbackDir = new File(serverDir, "upgrade-rollback");
+        rollbackDir.mkdirs();
+
+        server = Server.createServer(serverDir);
+        server.setServerId("server");
+        server.setParam(Server.PROPERTY_VERSION, "2.1");
+        server.saveTo(new File(rollbackDir, SDKConstants.OPENMRS_SERVER_PROPERTIES));
+        server.setParam(Server.PROPERTY_VERSION, "2.2");
+        server.save();
+
+        serverUpgrader = new ServerUpgrader(new Deploy());
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(serverDir);
+    }
+
+    @Test
+    public void rollbackUpgrade_shouldRestoreServerNotChangedSinceUpgrade() throws Exception {
+        stampRollback();
+
+        serverUpgrader.rollbackUpgrade(server);
+
+        assertThat(Server.loadServer(serverDir).getParam(Server.PROPERTY_VERSION), is("2.1"));
+        assertThat(rollbackDir.exists(), is(false));
+    }
+
+    @Test
+    public void rollbackUpgrade_shouldRefuseServerChangedSinceUpgrade() throws Exception {
+        stampRollback();
+        server.setParam(Server.PROPERTY_VERSION, "2.3");
+        server.save();
+
+        try {
+            serverUpgrader.rollbackUpgrade(server);
+            fail("Stale rollback must be refused");
+        } catch (MojoExecutionException e) {
+            assertThat(Server.loadServer(serverDir).getParam(Server.PROPERTY_VERSION), is("2.3"));
+        }
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void rollbackUpgrade_shouldRefuseRollbackOfUnknownAge() throws Exception {
+        serverUpgrader.rollbackUpgrade(server);
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void discardRollback_shouldPreventRollback() throws Exception {
+        stampRollback();
+
+        serverUpgrader.discardRollback(server);
+
+        serverUpgrader.rollbackUpgrade(server);
+    }
+
+    private void stampRollback() throws Exception {
+        server.saveTo(new File(rollbackDir, "upgraded-" + SDKConstants.OPENMRS_SERVER_PROPERTIES));
+    }
+}
@@ -0,0 +1,82 @@
+package org.openmrs.maven.plugins.git;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares JGit and native git helpers on a large repository, e.g. a local clone of openmrs-core.
+ * It is skipped unless run with -DgitBenchmarkRepository=/path/to/repository
+ */
+public class GitHelperBenchmarkTest {
+
+    private static final String REPOSITORY_PROPERTY = "gitBenchmarkRepository";
+
+    private static final int COMMITS_BEHIND = 50;
+
+    private String sourceRepository;
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws Exception {
+        sourceRepository = System.getProperty(REPOSITORY_PROPERTY);
+        assumeTrue(sourceRepository != null);
+        workDir = Files.createTempDirectory("git-benchmark").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Test
+    public void compareJGitWithNativeGit() throws Exception {
+        long[] jgit = benchmark(new DefaultGitHelper(), new File(workDir, "jgit"));
+        long[] nativeGit = benchmark(new NativeGitHelper(), new File(workDir, "native"));
+
+        System.out.println(String.format("%-10s %10s %10s %10s", "", "clone [ms]", "fetch [ms]", "rebase [ms]"));
+        System.out.println(String.format("%-10s %10d %10d %10d", "JGit", jgit[0], jgit[1], jgit[2]));
+        System.out.println(String.format("%-10s %10d %10d %10d", "native", nativeGit[0], nativeGit[1], nativeGit[2]));
+    }
+
+    /**
+     * @return times of clone, fetch and rebase of a commit made {@link #COMMITS_BEHIND} commits behind default branch
+     */
+    private long[] benchmark(GitHelper gitHelper, File directory) throws Exception {
+        long[] times = new long[3];
+
+        long start = System.currentTimeMillis();
+        gitHelper.cloneRepository(new File(sourceRepository).toURI().toString(), directory, null, false, null);
+        times[0] = System.currentTimeMillis() - start;
+
+        try (Git git = new Git(gitHelper.getLocalRepository(directory.getAbsolutePath()))) {
+            String defaultBranch = git.getRepository().getBranch();
+
+            start = System.currentTimeMillis();
+            gitHelper.fetch(git, "origin", "+" + Constants.R_HEADS + "*:" + Constants.R_REMOTES + "origin/*");
+            times[1] = System.currentTimeMillis() - start;
+
+            git.checkout().setCreateBranch(true).setName("benchmark").setStartPoint("HEAD~" + COMMITS_BEHIND).call();
+            FileUtils.writeStringToFile(new File(directory, "benchmark.txt"), "benchmark");
+            git.add().addFilepattern("benchmark.txt").call();
+            git.commit().setMessage("benchmark").call();
+
+            start = System.currentTimeMillis();
+            boolean rebased = gitHelper.rebase(git, Constants.R_REMOTES + "origin/" + defaultBranch);
+            times[2] = System.currentTimeMillis() - start;
+            assertThat(rebased, is(true));
+        }
+        return times;
+    }
+}
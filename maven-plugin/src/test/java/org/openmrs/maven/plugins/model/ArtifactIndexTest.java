@@ -0,0 +1,55 @@
+package org.openmrs.maven.plugins.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class ArtifactIndexTest {
+
+    @Test
+    public void getShouldMatchArtifactsByFileId() throws Exception{
+        Artifact rest = new Artifact("webservices.rest-omod", "2.16");
+        ArtifactIndex index = new ArtifactIndex(ArtifactIndex.BY_FILE_ID, Arrays.asList(rest));
+
+        ArtifactIndex.Entry entry = index.get(new Artifact("webservices.rest-omod", "2.17-SNAPSHOT"));
+        assertThat(entry.getArtifact(), is(rest));
+        assertThat(entry.getVersion().equal(new Version("2.16")), is(true));
+        assertThat(index.get(new Artifact("appui-omod", "1.0")), is(nullValue()));
+    }
+
+    @Test
+    public void addShouldKeepFirstArtifactWithSameKey() throws Exception{
+        Artifact first = new Artifact("appui", "1.0");
+        Artifact second = new Artifact("appui", "2.0");
+        ArtifactIndex index = new ArtifactIndex(ArtifactIndex.BY_GROUP_AND_ARTIFACT_ID, Arrays.asList(first, second));
+
+        assertThat(index.size(), is(1));
+        assertThat(index.get(second).getArtifact(), is(first));
+    }
+
+    @Test
+    public void putShouldReplaceArtifactAndMoveItToEnd() throws Exception{
+        Artifact appui = new Artifact("appui", "1.0");
+        Artifact owa = new Artifact("owa", "1.4");
+        Artifact appuiUpdate = new Artifact("appui", "1.1");
+        ArtifactIndex index = new ArtifactIndex(ArtifactIndex.BY_GROUP_AND_ARTIFACT_ID, Arrays.asList(appui, owa));
+
+        index.put(appuiUpdate);
+        assertThat(index.getArtifacts(), contains(owa, appuiUpdate));
+    }
+
+    @Test
+    public void keyShouldIncludeTypeIfRequired() throws Exception{
+        Artifact jar = new Artifact("appui", "1.0", Artifact.GROUP_MODULE, Artifact.TYPE_JAR);
+        Artifact omod = new Artifact("appui", "1.0", Artifact.GROUP_MODULE, Artifact.TYPE_OMOD);
+        ArtifactIndex index = new ArtifactIndex(ArtifactIndex.BY_GROUP_ARTIFACT_ID_AND_TYPE, Arrays.asList(jar));
+
+        assertThat(index.contains(jar), is(true));
+        assertThat(index.contains(omod), is(false));
+    }
+}
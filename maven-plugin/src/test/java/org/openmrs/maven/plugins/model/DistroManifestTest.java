@@ -0,0 +1,118 @@
+package org.openmrs.maven.plugins.model;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class DistroManifestTest {
+
+    private static final String MODULE_PATH = "modules/webservices.rest-2.20.0.omod";
+
+    private File directory;
+
+    private Artifact module;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("distro-manifest").toFile();
+        module = new Artifact("webservices.rest-omod", "2.20.0", Artifact.GROUP_MODULE, Artifact.TYPE_JAR, Artifact.TYPE_OMOD);
+        writeFile(MODULE_PATH, "module");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void loadShouldReadSavedManifest() throws Exception {
+        DistroManifest manifest = new DistroManifest();
+        manifest.add(DistroManifest.getCoordinates(module), directory, MODULE_PATH);
+        manifest.saveTo(directory);
+
+        DistroManifest.Entry entry = DistroManifest.load(directory).find(DistroManifest.getCoordinates(module));
+        assertThat(entry.getPath(), is(MODULE_PATH));
+        assertThat(entry.getSize(), is(6L));
+        assertThat(entry.getSha256(), is(DistroManifest.sha256(new File(directory, MODULE_PATH))));
+    }
+
+    @Test
+    public void loadShouldReadBundledFlag() throws Exception {
+        assertThat(DistroManifest.load(directory).getBundled(), is(nullValue()));
+
+        DistroManifest manifest = new DistroManifest();
+        manifest.setBundled(true);
+        manifest.add(DistroManifest.getCoordinates(module), directory, MODULE_PATH);
+        manifest.saveTo(directory);
+
+        DistroManifest loaded = DistroManifest.load(directory);
+        assertThat(loaded.getBundled(), is(true));
+        assertThat(loaded.find(DistroManifest.getCoordinates(module)).getPath(), is(MODULE_PATH));
+    }
+
+    @Test
+    public void findUpToDateShouldReturnNullIfFileChanged() throws Exception {
+        DistroManifest manifest = new DistroManifest();
+        manifest.add(DistroManifest.getCoordinates(module), directory, MODULE_PATH);
+        assertThat(manifest.findUpToDate(DistroManifest.getCoordinates(module), directory), is(notNullValue()));
+
+        writeFile(MODULE_PATH, "modified");
+        assertThat(manifest.findUpToDate(DistroManifest.getCoordinates(module), directory), is(nullValue()));
+    }
+
+    @Test
+    public void findUpToDateShouldReturnNullForSnapshot() throws Exception {
+        module.setVersion("2.21.0-SNAPSHOT");
+        DistroManifest manifest = new DistroManifest();
+        manifest.add(DistroManifest.getCoordinates(module), directory, MODULE_PATH);
+
+        assertThat(manifest.findUpToDate(DistroManifest.getCoordinates(module), directory), is(nullValue()));
+    }
+
+    @Test
+    public void getStaleEntriesShouldReturnEntriesMissingInCurrentManifest() throws Exception {
+        writeFile("owa/conceptdictionary.owa", "owa");
+        DistroManifest previous = new DistroManifest();
+        previous.add(DistroManifest.getCoordinates(module), directory, MODULE_PATH);
+        previous.add("owa:conceptdictionary:1.0.0", directory, "owa/conceptdictionary.owa");
+        DistroManifest current = new DistroManifest();
+        current.add(DistroManifest.getCoordinates(module), directory, MODULE_PATH);
+
+        List<DistroManifest.Entry> stale = previous.getStaleEntries(current);
+        assertThat(stale.size(), is(1));
+        assertThat(stale.get(0).getPath(), is("owa/conceptdictionary.owa"));
+    }
+
+    @Test
+    public void verifyShouldReportChangedAndMissingFiles() throws Exception {
+        writeFile("owa/conceptdictionary.owa", "owa");
+        DistroManifest manifest = new DistroManifest();
+        manifest.add(DistroManifest.getCoordinates(module), directory, MODULE_PATH);
+        manifest.add("owa:conceptdictionary:1.0.0", directory, "owa/conceptdictionary.owa");
+        assertThat(manifest.verify(directory, 2).isEmpty(), is(true));
+
+        writeFile(MODULE_PATH, "modified");
+        new File(directory, "owa/conceptdictionary.owa").delete();
+        assertThat(manifest.verify(directory, 2), is(Arrays.asList(
+                "modules/webservices.rest-2.20.0.omod has size 8 instead of 6",
+                "owa/conceptdictionary.owa is missing")));
+    }
+
+    private void writeFile(String path, String content) throws Exception {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -11,6 +11,7 @@ import java.util.List;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsCollectionContaining.hasItems;
 
@@ -100,4 +101,35 @@ public class ServerTest {
         String result2 = server.getMySqlPort();
         assertThat(result2, is(equalTo("3306")));
     }
+
+    @Test
+    public void getUserModulesShouldReflectChangesAfterBeingParsed() throws Exception{
+        server.setParam(Server.PROPERTY_USER_MODULES, "org.openmrs.module/owa/1.4");
+        List<Artifact> artifacts = server.getUserModules();
+        artifacts.get(0).setVersion("1.5");
+        assertThat(server.getUserModules().get(0).getVersion(), is("1.4"));
+
+        server.saveUserModule(new Artifact("uicommons-omod", "1.7", "org.openmrs.module"));
+        assertThat(server.getUserModules().size(), is(2));
+    }
+
+    @Test
+    public void getModuleArtifactsShouldReflectRemovedModule() throws Exception{
+        server.setModuleProperties(new Artifact("owa-omod", "1.4", "org.openmrs.module"));
+        assertThat(server.getModuleArtifacts().size(), is(1));
+
+        server.removeModuleProperties(new Artifact("owa-omod", "1.4", "org.openmrs.module"));
+        assertThat(server.getModuleArtifacts().size(), is(0));
+    }
+
+    @Test
+    public void setContainerIdShouldClearResolvedIdOfOtherContainer() throws Exception{
+        server.setContainerId("openmrs-sdk-mysql-v3-2");
+        server.setResolvedContainerId("4ad0b6ac2f7d");
+        server.setContainerId("openmrs-sdk-mysql-v3-2");
+        assertThat(server.getResolvedContainerId(), is("4ad0b6ac2f7d"));
+
+        server.setContainerId("other-mysql");
+        assertThat(server.getResolvedContainerId(), is(nullValue()));
+    }
 }
@@ -0,0 +1,39 @@
+package org.openmrs.maven.plugins.model;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UpgradePlanTest {
+
+    @Test
+    public void addItemShouldSumSizesOfArtifactsToDownload() throws Exception{
+        UpgradePlan plan = new UpgradePlan("server", "Reference Application", "2.6");
+
+        UpgradePlan.Item local = new UpgradePlan.Item(UpgradePlan.ACTION_ADD, null, new Artifact("appui-omod", "1.7"));
+        local.setInLocalRepository(true);
+        local.setSize(100L);
+        UpgradePlan.Item remote = new UpgradePlan.Item(UpgradePlan.ACTION_UPDATE, new Artifact("owa-omod", "1.4"), new Artifact("owa-omod", "1.5"));
+        remote.setSize(250L);
+        UpgradePlan.Item delete = new UpgradePlan.Item(UpgradePlan.ACTION_DELETE, new Artifact("legacyui-omod", "1.2"), null);
+        plan.addItem(local);
+        plan.addItem(remote);
+        plan.addItem(delete);
+
+        assertThat(plan.getBytesToInstall(), is(350L));
+        assertThat(plan.getBytesToDownload(), is(250L));
+        assertThat(plan.getArtifactsInLocalRepository(), is(1));
+        assertThat(plan.isSizesIncomplete(), is(false));
+    }
+
+    @Test
+    public void addItemShouldMarkPlanIncompleteIfSizeIsUnknown() throws Exception{
+        UpgradePlan plan = new UpgradePlan("server", "Reference Application", "2.6");
+        plan.addItem(new UpgradePlan.Item(UpgradePlan.ACTION_ADD, null, new Artifact("appui-omod", "1.8-SNAPSHOT")));
+
+        assertThat(plan.isSizesIncomplete(), is(true));
+        assertThat(plan.toJson(), containsString("\"targetVersion\": \"1.8-SNAPSHOT\""));
+    }
+}
@@ -0,0 +1,113 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class BundledWarBuilderTest {
+
+    private File directory;
+
+    private File war;
+
+    private File module;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("bundled-war").toFile();
+        war = new File(directory, "openmrs.war");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(war))) {
+            putEntry(out, "WEB-INF/", "");
+            putEntry(out, "WEB-INF/web.xml", "<web-app/>");
+            putEntry(out, "index.jsp", "index");
+        }
+        module = new File(directory, "module.omod");
+        Files.write(module.toPath(), "module".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void buildShouldAppendStoredFilesAfterWarEntries() throws Exception {
+        new BundledWarBuilder(war).addFile("WEB-INF/bundledModules/module.omod", module).build();
+
+        try (ZipFile zipFile = new ZipFile(war)) {
+            assertThat(getEntryNames(zipFile), is(Arrays.asList("WEB-INF/", "WEB-INF/web.xml", "index.jsp",
+                    "WEB-INF/bundledModules/", "WEB-INF/bundledModules/module.omod")));
+
+            ZipEntry entry = zipFile.getEntry("WEB-INF/bundledModules/module.omod");
+            assertThat(entry.getMethod(), is(ZipEntry.STORED));
+            assertThat(new String(readEntry(zipFile, entry), StandardCharsets.UTF_8), is("module"));
+            assertThat(new String(readEntry(zipFile, zipFile.getEntry("WEB-INF/web.xml")), StandardCharsets.UTF_8), is("<web-app/>"));
+        }
+    }
+
+    @Test
+    public void buildShouldReplaceWarEntryWithAddedFile() throws Exception {
+        new BundledWarBuilder(war).addFile("index.jsp", module).build();
+
+        try (ZipFile zipFile = new ZipFile(war)) {
+            assertThat(getEntryNames(zipFile), is(Arrays.asList("WEB-INF/", "WEB-INF/web.xml", "index.jsp")));
+            assertThat(new String(readEntry(zipFile, zipFile.getEntry("index.jsp")), StandardCharsets.UTF_8), is("module"));
+        }
+    }
+
+    @Test
+    public void buildShouldBeDeterministic() throws Exception {
+        File copy = new File(directory, "copy.war");
+        FileUtils.copyFile(war, copy);
+
+        new BundledWarBuilder(war).addFile("WEB-INF/bundledOwas/b.owa", module)
+                .addFile("WEB-INF/bundledOwas/a.owa", module).build();
+        module.setLastModified(module.lastModified() - 60000);
+        new BundledWarBuilder(copy).addFile("WEB-INF/bundledOwas/a.owa", module)
+                .addFile("WEB-INF/bundledOwas/b.owa", module).build();
+
+        assertThat(FileUtils.contentEquals(war, copy), is(true));
+    }
+
+    private void putEntry(ZipOutputStream out, String name, String content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(System.currentTimeMillis());
+        out.putNextEntry(entry);
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
+    private List<String> getEntryNames(ZipFile zipFile) {
+        List<String> names = new ArrayList<>();
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            names.add(entries.nextElement().getName());
+        }
+        return names;
+    }
+
+    private byte[] readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}
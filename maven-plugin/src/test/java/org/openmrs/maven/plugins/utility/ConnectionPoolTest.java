@@ -0,0 +1,75 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ConnectionPool(ConnectionPool.DEFAULT_CONNECT_TIMEOUT, 0);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void getConnectionShouldReuseClosedConnection() throws Exception {
+        Connection first = pool.getConnection(URL, "sa", "sa");
+        Connection firstRaw = first.unwrap(Connection.class);
+        first.close();
+        assertThat(first.isClosed(), is(true));
+
+        Connection second = pool.getConnection(URL, "sa", "sa");
+        assertThat(second.unwrap(Connection.class), is(sameInstance(firstRaw)));
+        assertThat(second.isClosed(), is(false));
+    }
+
+    @Test
+    public void getConnectionShouldNotShareConnectionInUse() throws Exception {
+        Connection first = pool.getConnection(URL, "sa", "sa");
+        Connection second = pool.getConnection(URL, "sa", "sa");
+
+        assertThat(second.unwrap(Connection.class), is(not(sameInstance(first.unwrap(Connection.class)))));
+    }
+
+    @Test
+    public void getConnectionShouldRestoreAutoCommit() throws Exception {
+        Connection first = pool.getConnection(URL, "sa", "sa");
+        first.setAutoCommit(false);
+        first.close();
+
+        assertThat(pool.getConnection(URL, "sa", "sa").getAutoCommit(), is(true));
+    }
+
+    @Test(expected = SQLException.class)
+    public void closedConnectionShouldNotBeUsable() throws Exception {
+        Connection connection = pool.getConnection(URL, "sa", "sa");
+        connection.close();
+        connection.createStatement();
+    }
+
+    @Test
+    public void closeShouldCloseAllConnections() throws Exception {
+        Connection connection = pool.getConnection(URL, "sa", "sa");
+        Connection raw = connection.unwrap(Connection.class);
+        pool.close();
+
+        assertThat(raw.isClosed(), is(true));
+    }
+}
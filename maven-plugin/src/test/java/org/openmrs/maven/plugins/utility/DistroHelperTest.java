@@ -1,20 +1,33 @@
 package org.openmrs.maven.plugins.utility;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.Test;
 import org.openmrs.maven.plugins.model.Artifact;
+import org.openmrs.maven.plugins.model.DistroProperties;
+import org.openmrs.maven.plugins.model.Server;
 import org.openmrs.maven.plugins.model.UpgradeDifferential;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  *
@@ -51,6 +64,73 @@ public class DistroHelperTest {
         assertThat(artifact.getVersion(), is("2.3"));
     }
     @Test
+    public void extractFileFromDistroShouldReadReleaseFromLocalRepository() throws Exception{
+        File directory = Files.createTempDirectory("distro-helper").toFile();
+        try {
+            File distroJar = new File(directory, "refapp-2.8.0.jar");
+            try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(distroJar))) {
+                out.putNextEntry(new ZipEntry(DistroProperties.DISTRO_FILE_NAME));
+                out.write("name=refapp".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+                out.putNextEntry(new ZipEntry("sql/dump.sql"));
+                out.write("CREATE TABLE person;".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+            Artifact artifact = new Artifact("refapp", "2.8.0", Artifact.GROUP_DISTRO);
+            ModuleInstaller moduleInstaller = mock(ModuleInstaller.class);
+            when(moduleInstaller.getLocalRepositoryFile(artifact)).thenReturn(distroJar);
+            when(moduleInstaller.resolveArtifact(artifact)).thenReturn(distroJar);
+            DistroHelper distroHelper = new DistroHelper(null, null, null, null, moduleInstaller);
+
+            File sqlFile = distroHelper.extractFileFromDistro(directory, artifact, "sql/dump.sql");
+            File missingFile = distroHelper.extractFileFromDistro(directory, artifact, "missing.sql");
+
+            assertThat(new String(Files.readAllBytes(sqlFile.toPath()), StandardCharsets.UTF_8), is("CREATE TABLE person;"));
+            assertThat(missingFile.length(), is(0L));
+            assertThat(distroJar.exists(), is(true));
+            sqlFile.delete();
+            missingFile.delete();
+        } finally {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+    @Test
+    public void extractFilesFromDistroShouldExtractSqlScriptNamedByDistroProperties() throws Exception{
+        File directory = Files.createTempDirectory("distro-helper").toFile();
+        try {
+            File distroJar = new File(directory, "refapp-2.8.0.jar");
+            try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(distroJar))) {
+                out.putNextEntry(new ZipEntry(DistroProperties.DISTRO_FILE_NAME));
+                out.write(("name=refapp\ndb.sql=" + Server.CLASSPATH_SCRIPT_PREFIX + "sql/dump.sql").getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+                out.putNextEntry(new ZipEntry("sql/dump.sql"));
+                out.write("CREATE TABLE person;".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+            Artifact artifact = new Artifact("refapp", "2.8.0", Artifact.GROUP_DISTRO);
+            ModuleInstaller moduleInstaller = mock(ModuleInstaller.class);
+            when(moduleInstaller.getLocalRepositoryFile(artifact)).thenReturn(distroJar);
+            when(moduleInstaller.resolveArtifact(artifact)).thenReturn(distroJar);
+            DistroHelper distroHelper = new DistroHelper(null, null, null, null, moduleInstaller);
+
+            Map<String, File> files = distroHelper.extractFilesFromDistro(directory, artifact, null);
+            Map<String, File> overriddenFiles = distroHelper.extractFilesFromDistro(directory, artifact,
+                    Server.CLASSPATH_SCRIPT_PREFIX + "missing.sql");
+
+            assertThat(new DistroProperties(files.get(DistroProperties.DISTRO_FILE_NAME)).getName(), is("refapp"));
+            assertThat(new String(Files.readAllBytes(files.get("sql/dump.sql").toPath()), StandardCharsets.UTF_8), is("CREATE TABLE person;"));
+            assertThat(overriddenFiles.keySet(), contains(DistroProperties.DISTRO_FILE_NAME));
+            for (File file : files.values()) {
+                file.delete();
+            }
+            for (File file : overriddenFiles.values()) {
+                file.delete();
+            }
+        } finally {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+    @Test
     public void calculateUpdateDifferentialShouldFindArtifactsToAddList() throws Exception{
         UpgradeDifferential upgradeDifferential = DistroHelper.calculateUpdateDifferential(getMockOldArtifactList(), getMockNewArtifactList());
 
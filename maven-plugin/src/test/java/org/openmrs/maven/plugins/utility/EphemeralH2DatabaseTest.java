@@ -0,0 +1,73 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+
+public class EphemeralH2DatabaseTest {
+
+    private File directory;
+
+    private String dbUri;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("ephemeral-h2").toFile();
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        dbUri = String.format(SDKConstants.URI_H2_EPHEMERAL, port).replace("@DBNAME@", "openmrs");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void isEphemeralUriShouldMatchOnlyInMemoryTcpUri() {
+        assertThat(EphemeralH2Database.isEphemeralUri(dbUri), is(true));
+        assertThat(EphemeralH2Database.isEphemeralUri(SDKConstants.URI_H2), is(false));
+        assertThat(EphemeralH2Database.isEphemeralUri(SDKConstants.URI_MYSQL), is(false));
+    }
+
+    @Test
+    public void stopShouldSaveDatabaseWhichIsLoadedOnStart() throws Exception {
+        File snapshot = new File(directory, "openmrs-snapshot.sql");
+
+        EphemeralH2Database database = new EphemeralH2Database(snapshot, dbUri, "sa", "sa", mock(Wizard.class));
+        database.start();
+        try (Connection connection = DriverManager.getConnection(dbUri, "sa", "sa");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE person (name VARCHAR(50))");
+            statement.execute("INSERT INTO person VALUES ('John')");
+        }
+        database.stop();
+        assertThat(snapshot.exists(), is(true));
+
+        database = new EphemeralH2Database(snapshot, dbUri, "sa", "sa", mock(Wizard.class));
+        database.start();
+        try (Connection connection = DriverManager.getConnection(dbUri, "sa", "sa");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM person")) {
+            assertThat(resultSet.next(), is(true));
+            assertThat(resultSet.getString(1), is("John"));
+        } finally {
+            database.stop();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+
+public class OwaBuildCacheTest {
+
+    private File directory;
+
+    private File projectDir;
+
+    private OwaBuildCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("owa-build-cache").toFile();
+        projectDir = new File(directory, "project");
+        cache = new OwaBuildCache(new File(directory, "cache"));
+        writeFile("package.json", "{}");
+        writeFile("app/js/app.js", "app");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void isNodeModulesUpToDateShouldCompareSavedFingerprint() throws Exception {
+        String fingerprint = cache.getDependenciesFingerprint(projectDir, "node-v7.4.0-npm-3.10.10");
+        assertThat(cache.isNodeModulesUpToDate(projectDir, fingerprint), is(false));
+
+        new File(projectDir, "node_modules").mkdirs();
+        cache.saveNodeModulesFingerprint(projectDir, fingerprint);
+        assertThat(cache.isNodeModulesUpToDate(projectDir, fingerprint), is(true));
+
+        writeFile("package-lock.json", "{}");
+        String changed = cache.getDependenciesFingerprint(projectDir, "node-v7.4.0-npm-3.10.10");
+        assertThat(cache.isNodeModulesUpToDate(projectDir, changed), is(false));
+        assertThat(cache.getDependenciesFingerprint(projectDir, "node-v8.0.0-npm-5.0.0"), is(not(changed)));
+    }
+
+    @Test
+    public void getSourceHashShouldIgnoreOutputAndNodeModules() throws Exception {
+        String hash = cache.getSourceHash(projectDir, "fingerprint");
+
+        writeFile("dist/app.js", "built");
+        writeFile("node_modules/module/index.js", "module");
+        assertThat(cache.getSourceHash(projectDir, "fingerprint"), is(hash));
+
+        writeFile("app/js/app.js", "changed");
+        assertThat(cache.getSourceHash(projectDir, "fingerprint"), is(not(hash)));
+    }
+
+    @Test
+    public void restoreOutputShouldReplaceOutputWithCachedOne() throws Exception {
+        assertThat(cache.restoreOutput(projectDir, "hash"), is(false));
+
+        writeFile("dist/app.js", "built");
+        cache.saveOutput(projectDir, "hash");
+
+        writeFile("dist/app.js", "modified");
+        writeFile("dist/stale.js", "stale");
+        assertThat(cache.restoreOutput(projectDir, "hash"), is(true));
+        assertThat(new File(projectDir, "dist/stale.js").exists(), is(false));
+        assertThat(new String(Files.readAllBytes(new File(projectDir, "dist/app.js").toPath()), StandardCharsets.UTF_8), is("built"));
+    }
+
+    private void writeFile(String path, String content) throws Exception {
+        File file = new File(projectDir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
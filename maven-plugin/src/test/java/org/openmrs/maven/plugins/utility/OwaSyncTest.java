@@ -0,0 +1,87 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+
+public class OwaSyncTest {
+
+    private File directory;
+
+    private File sourceDir;
+
+    private File targetDir;
+
+    private OwaSync owaSync;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("owa-sync").toFile();
+        sourceDir = new File(directory, "dist");
+        targetDir = new File(directory, "owa/app");
+        owaSync = new OwaSync(sourceDir, targetDir, mock(Wizard.class), OwaSync.DEFAULT_POLL_INTERVAL);
+    }
+
+    @After
+    public void tearDown() {
+        owaSync.close();
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void syncShouldPushOnlyChangedFiles() throws Exception {
+        writeFile(sourceDir, "index.html", "index");
+        writeFile(sourceDir, "js/app.js", "app");
+        assertThat(owaSync.sync(), is(2));
+        assertThat(owaSync.sync(), is(0));
+
+        writeFile(sourceDir, "js/app.js", "changed app");
+        assertThat(owaSync.sync(), is(1));
+        assertThat(readFile(targetDir, "js/app.js"), is("changed app"));
+        assertThat(readFile(targetDir, "index.html"), is("index"));
+    }
+
+    @Test
+    public void syncShouldRemoveFilesMissingInSource() throws Exception {
+        writeFile(sourceDir, "index.html", "index");
+        writeFile(sourceDir, "js/old.js", "old");
+        owaSync.sync();
+
+        new File(sourceDir, "js/old.js").delete();
+        assertThat(owaSync.sync(), is(1));
+        assertThat(new File(targetDir, "js").exists(), is(false));
+        assertThat(new File(targetDir, "index.html").exists(), is(true));
+    }
+
+    @Test
+    public void startShouldPushChangesInBackground() throws Exception {
+        writeFile(sourceDir, "index.html", "index");
+        owaSync = new OwaSync(sourceDir, targetDir, mock(Wizard.class), 10);
+        owaSync.start();
+
+        File target = new File(targetDir, "index.html");
+        for (int i = 0; i < 500 && !target.exists(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(readFile(targetDir, "index.html"), is("index"));
+    }
+
+    private void writeFile(File dir, String path, String content) throws Exception {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readFile(File dir, String path) throws Exception {
+        return new String(Files.readAllBytes(new File(dir, path).toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class StreamingZipExtractorTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("zip-extractor").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void extractShouldWriteAllEntries() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            putEntry(out, "js/", null);
+            for (int i = 0; i < 50; i++) {
+                putEntry(out, "js/app" + i + ".js", "app " + i);
+            }
+            putEntry(out, "index.html", "index");
+        }
+
+        File outputDir = new File(directory, "app");
+        new StreamingZipExtractor(4).extract(new ByteArrayInputStream(zip.toByteArray()), outputDir);
+
+        assertThat(new File(outputDir, "js").list().length, is(50));
+        assertThat(readFile(outputDir, "js/app42.js"), is("app 42"));
+        assertThat(readFile(outputDir, "index.html"), is("index"));
+    }
+
+    @Test(expected = IOException.class)
+    public void extractShouldRejectEntryOutsideOfOutputDirectory() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            putEntry(out, "../evil.js", "evil");
+        }
+
+        try {
+            new StreamingZipExtractor(4).extract(new ByteArrayInputStream(zip.toByteArray()), new File(directory, "app"));
+        } finally {
+            assertThat(new File(directory, "evil.js").exists(), is(false));
+        }
+    }
+
+    private void putEntry(ZipOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        if (content != null) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeEntry();
+    }
+
+    private String readFile(File dir, String path) throws Exception {
+        return new String(Files.readAllBytes(new File(dir, path).toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+package org.openmrs.maven.plugins.utility;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class ToolchainProbeCacheTest {
+
+    private File directory;
+
+    private File node;
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("toolchain-probes").toFile();
+        node = new File(directory, "node");
+        Files.write(node.toPath(), "node".getBytes(StandardCharsets.UTF_8));
+        cacheFile = new File(directory, ToolchainProbeCache.FILE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void getShouldReturnVersionSavedByOtherInstance() throws Exception {
+        new ToolchainProbeCache(cacheFile).put(node, "v7.4.0");
+
+        assertThat(new ToolchainProbeCache(cacheFile).get(node), is("v7.4.0"));
+    }
+
+    @Test
+    public void getShouldReturnNullIfExecutableChanged() throws Exception {
+        ToolchainProbeCache cache = new ToolchainProbeCache(cacheFile);
+        cache.put(node, "v7.4.0");
+
+        Files.write(node.toPath(), "upgraded node".getBytes(StandardCharsets.UTF_8));
+        node.setLastModified(node.lastModified() - 60000);
+        assertThat(cache.get(node), is(nullValue()));
+    }
+
+    @Test
+    public void getShouldReturnNullForMissingExecutable() throws Exception {
+        ToolchainProbeCache cache = new ToolchainProbeCache(cacheFile);
+        cache.put(node, "v7.4.0");
+
+        node.delete();
+        assertThat(cache.get(node), is(nullValue()));
+    }
+}